@@ -0,0 +1,66 @@
+package latsko.springboottesting.benchmark;
+
+import latsko.springboottesting.UnitTestingApplication;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.service.EmployeeService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.accept.ContentNegotiationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application against an in-memory H2 database so benchmarks measure our code rather than
+ * a network round trip to MySQL. Every JMH fork gets its own database.
+ */
+final class BenchmarkApplication {
+
+    private static final int SEED_CHUNK_SIZE = 1000;
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                // the migrations are written for MySQL, H2 gets its schema from Hibernate
+                "--spring.flyway.enabled=false",
+                "--spring.jpa.hibernate.ddl-auto=create-drop"));
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(UnitTestingApplication.class)
+                .web(WebApplicationType.NONE)
+                // Spring MVC is not configured without a servlet context, the controller negotiates on Accept
+                .initializers(context -> context.getBeanFactory()
+                        .registerSingleton("mvcContentNegotiationManager", new ContentNegotiationManager()))
+                // passed as arguments so they win over application.properties
+                .run(args.toArray(String[]::new));
+    }
+
+    static void seed(EmployeeService employeeService, int rows) {
+        List<Employee> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+        for (int i = 0; i < rows; i++) {
+            chunk.add(employee("seed" + i));
+            if (chunk.size() == SEED_CHUNK_SIZE) {
+                employeeService.saveEmployees(chunk);
+                chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            employeeService.saveEmployees(chunk);
+        }
+    }
+
+    static Employee employee(String key) {
+        return Employee.builder()
+                .firstName("First" + key)
+                .lastName("Last" + key)
+                .email(key + "@benchmark.test")
+                .build();
+    }
+}
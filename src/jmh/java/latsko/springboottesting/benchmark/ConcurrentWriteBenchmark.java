@@ -0,0 +1,83 @@
+package latsko.springboottesting.benchmark;
+
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writers on distinct rows, so the only row they share is the table version every write transaction bumps. Its
+ * row lock is held from the bump to the commit, the less work after the bump the closer this gets to scaling with
+ * the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ConcurrentWriteBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private EmployeeService employeeService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        employeeService = context.getBean(EmployeeService.class);
+        BenchmarkApplication.seed(employeeService, ROWS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // every thread updates an employee of its own
+    @State(Scope.Thread)
+    public static class Writer {
+
+        private String key;
+        private long id;
+        private long updates;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentWriteBenchmark benchmark) {
+            key = "writer" + benchmark.sequence.incrementAndGet();
+            id = benchmark.employeeService.saveEmployee(BenchmarkApplication.employee(key)).getId();
+        }
+    }
+
+    @Benchmark
+    public Employee saveEmployee() {
+        return employeeService.saveEmployee(BenchmarkApplication.employee("new" + sequence.incrementAndGet()));
+    }
+
+    @Benchmark
+    public Optional<Employee> updateEmployee(Writer writer) {
+        Employee employee = BenchmarkApplication.employee(writer.key);
+        employee.setFirstName("Updated" + writer.updates++);
+        return employeeService.updateEmployee(writer.id, employee);
+    }
+}
@@ -0,0 +1,104 @@
+package latsko.springboottesting.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import latsko.springboottesting.contoller.EmployeeController;
+import latsko.springboottesting.service.EmployeeService;
+import latsko.springboottesting.web.StatementCountMetricsFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.test.web.servlet.setup.StandaloneMockMvcBuilder;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Request mapping, argument binding and message conversion on top of the service calls, without a socket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeControllerBenchmark {
+
+    private static final int ROWS = 1000;
+
+    // request, repository and statement-count metrics on or off, to keep their overhead in view
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private ObjectMapper objectMapper;
+    private long existingId;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = metrics
+                ? BenchmarkApplication.start()
+                : BenchmarkApplication.start("--employees.metrics.statements.enabled=false",
+                        "--management.metrics.data.repository.autotime.enabled=false");
+        EmployeeService employeeService = context.getBean(EmployeeService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        BenchmarkApplication.seed(employeeService, ROWS);
+        existingId = employeeService.getAllEmployees().get(ROWS / 2).id();
+        StandaloneMockMvcBuilder builder = MockMvcBuilders.standaloneSetup(context.getBean(EmployeeController.class))
+                .setMessageConverters(new StringHttpMessageConverter(),
+                        new MappingJackson2HttpMessageConverter(objectMapper));
+        if (metrics) {
+            // the filters Spring Boot would register in a servlet container
+            builder.addFilters(new ServerHttpObservationFilter(context.getBean(ObservationRegistry.class)),
+                    new StatementCountMetricsFilter(context.getBean(MeterRegistry.class)));
+        }
+        mockMvc = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String getEmployeeById() throws Exception {
+        return mockMvc.perform(get("/api/employees/{id}", existingId))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String getEmployeesPage() throws Exception {
+        return mockMvc.perform(get("/api/employees").param("limit", "50"))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String createEmployee() throws Exception {
+        return mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(BenchmarkApplication.employee("new" + sequence++))))
+                .andReturn().getResponse().getContentAsString();
+    }
+}
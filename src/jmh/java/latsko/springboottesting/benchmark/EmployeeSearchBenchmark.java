@@ -0,0 +1,76 @@
+package latsko.springboottesting.benchmark;
+
+import latsko.springboottesting.model.EmployeeView;
+import latsko.springboottesting.search.EmployeeSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// typeahead lookups against a fully loaded index, no Spring context or database involved
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class EmployeeSearchBenchmark {
+
+    private static final String[] FIRST_NAMES = {"James", "Mary", "John", "Patricia", "Robert", "Jennifer",
+            "Michael", "Linda", "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica"};
+
+    @Param({"100000", "1000000"})
+    private int employees;
+
+    // a common two-letter prefix, a rarer longer one, two words, and an email typed up to the domain
+    @Param({"jo", "jam", "mary sm", "john.k"})
+    private String query;
+
+    private EmployeeSearchIndex searchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] lastNames = new String[5000];
+        for (int i = 0; i < lastNames.length; i++) {
+            StringBuilder lastName = new StringBuilder().append((char) ('A' + random.nextInt(26)));
+            for (int length = 4 + random.nextInt(6); lastName.length() < length; ) {
+                lastName.append((char) ('a' + random.nextInt(26)));
+            }
+            lastNames[i] = lastName.toString();
+        }
+        searchIndex = new EmployeeSearchIndex(10000, 2);
+        searchIndex.load(sink -> {
+            for (int i = 1; i <= employees; i++) {
+                String firstName = FIRST_NAMES[i % FIRST_NAMES.length];
+                String lastName = lastNames[random.nextInt(lastNames.length)];
+                sink.accept(new EmployeeView(i, firstName, lastName, (firstName + "." + lastName).toLowerCase(Locale.ROOT)
+                        + i + "@gmail.com"));
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        searchIndex.destroy();
+    }
+
+    @Benchmark
+    public List<EmployeeView> search() {
+        return searchIndex.search(query, 10);
+    }
+}
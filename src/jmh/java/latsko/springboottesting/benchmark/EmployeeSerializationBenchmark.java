@@ -0,0 +1,77 @@
+package latsko.springboottesting.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import latsko.springboottesting.model.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeSerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private ObjectWriter employeeWriter;
+    private ObjectReader employeeReader;
+    private ObjectWriter listWriter;
+    private Employee employee;
+    private byte[] employeeJson;
+    private List<Employee> employees;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // same defaults as the ObjectMapper Spring Boot configures for the controllers
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        employeeWriter = objectMapper.writerFor(Employee.class);
+        employeeReader = objectMapper.readerFor(Employee.class);
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, Employee.class));
+
+        employees = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Employee next = BenchmarkApplication.employee(String.valueOf(i));
+            next.setId((long) i + 1);
+            employees.add(next);
+        }
+        employee = employees.get(0);
+        employeeJson = employeeWriter.writeValueAsBytes(employee);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployee() throws IOException {
+        return employeeWriter.writeValueAsBytes(employee);
+    }
+
+    @Benchmark
+    public Employee deserializeEmployee() throws IOException {
+        return employeeReader.readValue(employeeJson);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployeeList() throws IOException {
+        return listWriter.writeValueAsBytes(employees);
+    }
+}
@@ -0,0 +1,107 @@
+package latsko.springboottesting.benchmark;
+
+import latsko.springboottesting.cache.EmployeeCache;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeePage;
+import latsko.springboottesting.model.EmployeeView;
+import latsko.springboottesting.repository.EmployeeRepository;
+import latsko.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeServiceBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"100", "10000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private EmployeeService employeeService;
+    private EmployeeCache employeeCache;
+    private EmployeeRepository employeeRepository;
+    private long existingId;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        employeeService = context.getBean(EmployeeService.class);
+        employeeCache = context.getBean(EmployeeCache.class);
+        employeeRepository = context.getBean(EmployeeRepository.class);
+        BenchmarkApplication.seed(employeeService, rows);
+        existingId = employeeService.getAllEmployees().get(rows / 2).id();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee saveEmployee() {
+        return employeeService.saveEmployee(BenchmarkApplication.employee("new" + sequence++));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<EmployeeBatchResult> saveEmployeesBatch() {
+        List<Employee> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(BenchmarkApplication.employee("new" + sequence++));
+        }
+        return employeeService.saveEmployees(batch);
+    }
+
+    @Benchmark
+    public Optional<Employee> getEmployeeByIdCached() {
+        return employeeService.getEmployeeById(existingId);
+    }
+
+    @Benchmark
+    public Optional<Employee> getEmployeeByIdUncached() {
+        employeeCache.invalidate(existingId);
+        return employeeService.getEmployeeById(existingId);
+    }
+
+    @Benchmark
+    public List<EmployeeView> getAllEmployees() {
+        return employeeService.getAllEmployees();
+    }
+
+    // the managed-entity read getAllEmployees used before, kept as the baseline for the projection
+    @Benchmark
+    public List<Employee> getAllEmployeesAsEntities() {
+        return employeeRepository.findAll();
+    }
+
+    @Benchmark
+    public EmployeePage getEmployeesPage() {
+        return employeeService.getEmployeesPage(null, 50);
+    }
+}
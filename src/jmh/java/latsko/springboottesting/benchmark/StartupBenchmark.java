@@ -0,0 +1,173 @@
+package latsko.springboottesting.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the packaged application, from launching the JVM to the first successful
+ * {@code GET /api/employees/{id}}. Every invocation is a fresh process against the same MySQL container.
+ * Needs the fast-startup artifacts: {@code mvn -Pfast-startup,benchmark verify -Djmh.include=StartupBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final String FINAL_NAME = "spring-boot-testing-0.0.1-SNAPSHOT";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    // the repackaged jar as built today, AOT and lazy init from a plain jar, and the same with the CDS archive
+    @Param({"fat-jar", "fast-startup-no-cds", "fast-startup"})
+    private String variant;
+
+    private final Path target = Path.of(System.getProperty("startup.target-directory", "target"));
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(100))
+            .build();
+
+    private MySQLContainer<?> mySqlContainer;
+    private Process application;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        mySqlContainer = new MySQLContainer<>("mysql:latest")
+                .withUsername("username")
+                .withPassword("password")
+                .withDatabaseName("ems");
+        mySqlContainer.start();
+        // migrated and seeded once, so every start finds an up-to-date schema and employee 1
+        Flyway.configure()
+                .dataSource(mySqlContainer.getJdbcUrl(), mySqlContainer.getUsername(), mySqlContainer.getPassword())
+                .load()
+                .migrate();
+        try (Connection connection = DriverManager.getConnection(mySqlContainer.getJdbcUrl(),
+                mySqlContainer.getUsername(), mySqlContainer.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("insert into employees (id, first_name, last_name, email) "
+                    + "values (1, 'Startup', 'Benchmark', 'startup@benchmark.test')");
+            statement.executeUpdate("update employees_seq set next_val = 2");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mySqlContainer.stop();
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopApplication() throws InterruptedException {
+        if (application != null) {
+            application.destroy();
+            application.waitFor();
+            application = null;
+        }
+    }
+
+    @Benchmark
+    public int timeToFirstGet() throws IOException, InterruptedException {
+        int port = freePort();
+        ProcessBuilder processBuilder = new ProcessBuilder(command(port));
+        if (!variant.equals("fat-jar")) {
+            processBuilder.directory(target.resolve("fast-startup").toFile());
+        }
+        File log = target.resolve("startup-benchmark.log").toFile();
+        application = processBuilder
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/employees/1"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!application.isAlive()) {
+                throw new IllegalStateException(variant + " exited with " + application.exitValue() + ", see " + log);
+            }
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return response.statusCode();
+                }
+            } catch (ConnectException e) {
+                // not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException(variant + " did not answer within " + STARTUP_TIMEOUT + ", see " + log);
+    }
+
+    private List<String> command(int port) {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        switch (variant) {
+            case "fat-jar" -> command.addAll(List.of("-jar", existing(target.resolve(FINAL_NAME + ".jar"))));
+            case "fast-startup", "fast-startup-no-cds" -> {
+                if (variant.equals("fast-startup")) {
+                    // relative, like the path the archive was dumped with
+                    existing(target.resolve("fast-startup/application.jsa"));
+                    command.add("-XX:SharedArchiveFile=application.jsa");
+                }
+                existing(target.resolve("fast-startup/" + FINAL_NAME + "-fast-startup.jar"));
+                command.addAll(List.of("-Dspring.aot.enabled=true", "-Dspring.profiles.active=fast-startup",
+                        "-jar", FINAL_NAME + "-fast-startup.jar"));
+            }
+            default -> throw new IllegalArgumentException("Unknown variant: " + variant);
+        }
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=" + mySqlContainer.getJdbcUrl(),
+                "--spring.datasource.username=" + mySqlContainer.getUsername(),
+                "--spring.datasource.password=" + mySqlContainer.getPassword()));
+        return command;
+    }
+
+    private static String existing(Path path) {
+        if (!Files.exists(path)) {
+            throw new IllegalStateException(path + " is missing, build it with mvn -Pfast-startup package");
+        }
+        return path.toString();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package latsko.springboottesting.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import latsko.springboottesting.model.EmployeeView;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode and decode time of a 10k employee listing in each format the API negotiates, with and without the gzip
+ * Tomcat applies above server.compression.min-response-size. The bytes on the wire for each combination are a
+ * secondary result, {@code wireBytes}, next to the timings in jmh-result.json, e.g.
+ * {@code mvn -Pbenchmark verify -Djmh.include=WireFormatBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final int EMPLOYEES = 10000;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"identity", "gzip"})
+    private String encoding;
+
+    private ObjectWriter listWriter;
+    private ObjectReader listReader;
+    private List<EmployeeView> employees;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // same builders the JSON converter and WireFormatConfig start from
+        ObjectMapper objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, EmployeeView.class));
+        listReader = objectMapper.readerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, EmployeeView.class));
+
+        employees = new ArrayList<>(EMPLOYEES);
+        for (int i = 0; i < EMPLOYEES; i++) {
+            EmployeeView employee = EmployeeView.of(BenchmarkApplication.employee(String.valueOf(i)));
+            employees.add(new EmployeeView(i + 1, employee.firstName(), employee.lastName(), employee.email()));
+        }
+        encoded = write();
+    }
+
+    // JMH zeroes the counter before each iteration and reads it after the teardown; it sums the counter over the
+    // measurement iterations, so only the first one reports the size
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireSize {
+
+        public long wireBytes;
+        private boolean reported;
+
+        @TearDown(Level.Iteration)
+        public void report(WireFormatBenchmark benchmark, IterationParams iteration) {
+            boolean measured = iteration.getType() == IterationType.MEASUREMENT;
+            wireBytes = measured && !reported ? benchmark.encoded.length : 0;
+            reported |= measured;
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(WireSize wireSize) throws IOException {
+        return write();
+    }
+
+    @Benchmark
+    public List<EmployeeView> decode(WireSize wireSize) throws IOException {
+        try (InputStream in = encoding.equals("gzip")
+                ? new GZIPInputStream(new ByteArrayInputStream(encoded))
+                : new ByteArrayInputStream(encoded)) {
+            return listReader.readValue(in);
+        }
+    }
+
+    private byte[] write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = encoding.equals("gzip") ? new GZIPOutputStream(bytes) : bytes) {
+            listWriter.writeValue(out, employees);
+        }
+        return bytes.toByteArray();
+    }
+}
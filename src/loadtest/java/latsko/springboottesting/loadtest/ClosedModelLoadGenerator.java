@@ -0,0 +1,40 @@
+package latsko.springboottesting.loadtest;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A fixed number of clients, each on its own virtual thread, sending its next request as soon as the previous
+ * one has answered. Throughput is whatever the server sustains for that many concurrent clients, which is what
+ * the platform and virtual thread modes are compared on; latency is taken from the time a request was sent, a
+ * slow server simply gets fewer requests (coordinated omission is inherent to the model).
+ */
+final class ClosedModelLoadGenerator extends LoadGenerator {
+
+    ClosedModelLoadGenerator(LoadTestConfig config, URI employeesUri, List<Long> seededIds) {
+        super(config, employeesUri, seededIds);
+    }
+
+    @Override
+    Map<Operation, OperationStats> run() {
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < config.clients(); client++) {
+                clients.execute(() -> {
+                    for (long sent = System.nanoTime(); sent < end && !Thread.currentThread().isInterrupted();
+                         sent = System.nanoTime()) {
+                        execute(nextOperation(), sent, sent >= measureFrom);
+                    }
+                });
+            }
+        }
+        stats.values().forEach(OperationStats::complete);
+        return stats;
+    }
+}
@@ -0,0 +1,109 @@
+package latsko.springboottesting.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throughput, percentiles and the verdict against the configured budgets, one line per operation. The full
+ * percentile distribution of every operation is written next to the report as an .hgrm file, which the
+ * HdrHistogram plotter reads.
+ */
+final class LatencyReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final LoadTestConfig config;
+    private final Map<Operation, OperationStats> stats;
+    private final List<String> violations = new ArrayList<>();
+
+    LatencyReport(LoadTestConfig config, Map<Operation, OperationStats> stats) {
+        this.config = config;
+        this.stats = stats;
+        stats.forEach(this::checkBudget);
+    }
+
+    boolean passed() {
+        return violations.isEmpty();
+    }
+
+    void print(PrintStream out) {
+        double seconds = config.duration().toNanos() / 1e9;
+        out.printf(Locale.ROOT, "Load test: %s for %ds against %s, %s threads%n",
+                config.workload(), config.duration().toSeconds(), config.database(), config.threads());
+        out.printf(Locale.ROOT, "%-8s %10s %10s %8s %8s %10s %10s %10s %10s%n",
+                "op", "requests", "req/s", "errors", "shed", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        long requests = 0;
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operationStats = entry.getValue();
+            Histogram histogram = operationStats.histogram();
+            requests += operationStats.requests();
+            out.printf(Locale.ROOT, "%-8s %10d %10.1f %8d %8d %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey().key(),
+                    operationStats.requests(),
+                    operationStats.requests() / seconds,
+                    operationStats.errors(),
+                    operationStats.shed(),
+                    histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                    histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                    histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                    histogram.getMaxValue() / MICROS_PER_MILLI);
+        }
+        out.printf(Locale.ROOT, "total    %10d %10.1f%n", requests, requests / seconds);
+        if (passed()) {
+            out.println("PASSED: all operations within budget");
+        } else {
+            out.println("FAILED:");
+            violations.forEach(violation -> out.println("  " + violation));
+        }
+    }
+
+    void write(Path reportFile) throws IOException {
+        Path directory = reportFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(reportFile), false, StandardCharsets.UTF_8)) {
+            print(out);
+        }
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            Path distribution = directory.resolve("loadtest-" + entry.getKey().key() + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(distribution), false, StandardCharsets.UTF_8)) {
+                entry.getValue().histogram().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    private void checkBudget(Operation operation, OperationStats operationStats) {
+        LoadTestConfig.Budget budget = config.budgets().get(operation);
+        Histogram histogram = operationStats.histogram();
+        checkPercentile(operation, "p99", histogram.getValueAtPercentile(99), budget.p99());
+        checkPercentile(operation, "p99.9", histogram.getValueAtPercentile(99.9), budget.p999());
+        if (operationStats.requests() > 0) {
+            double errorRate = (double) operationStats.errors() / operationStats.requests();
+            if (errorRate > budget.maxErrorRate()) {
+                violations.add(String.format(Locale.ROOT, "%s error rate %.4f exceeds %.4f",
+                        operation.key(), errorRate, budget.maxErrorRate()));
+            }
+            double shedRate = (double) operationStats.shed() / operationStats.requests();
+            if (shedRate > config.maxShedRate()) {
+                violations.add(String.format(Locale.ROOT, "%s shed rate %.4f exceeds %.4f",
+                        operation.key(), shedRate, config.maxShedRate()));
+            }
+        }
+    }
+
+    private void checkPercentile(Operation operation, String name, long valueMicros, Duration budget) {
+        if (valueMicros > budget.toNanos() / 1000) {
+            violations.add(String.format(Locale.ROOT, "%s %s %.2f ms exceeds %d ms",
+                    operation.key(), name, valueMicros / MICROS_PER_MILLI, budget.toMillis()));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package latsko.springboottesting.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The workload both load models send: the operation mix, the requests and how their responses are recorded.
+ * Subclasses decide when requests start.
+ */
+abstract class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    final LoadTestConfig config;
+    private final URI employeesUri;
+    private final List<Long> seededIds;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    // employees created by the workload, the only ones it deletes so reads and updates keep finding theirs
+    private final Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final HttpClient httpClient;
+
+    LoadGenerator(LoadTestConfig config, URI employeesUri, List<Long> seededIds) {
+        this.config = config;
+        this.employeesUri = employeesUri;
+        this.seededIds = seededIds;
+        this.operations = Operation.values();
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += config.mix().get(operations[i]);
+            cumulativeWeights[i] = total;
+            stats.put(operations[i], new OperationStats());
+        }
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+    }
+
+    /**
+     * Runs warm-up and measurement back to back and waits for every request to finish. Only requests
+     * started after the warm-up are recorded.
+     */
+    abstract Map<Operation, OperationStats> run();
+
+    // latency is taken from the given start, which the open model sets to when the request was due
+    void execute(Operation operation, long intendedStart, boolean measured) {
+        OperationStats operationStats = stats.get(operation);
+        HttpRequest request = request(operation);
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            long latency = System.nanoTime() - intendedStart;
+            if (operation == Operation.CREATE && response.statusCode() == 201) {
+                Matcher id = ID.matcher(response.body());
+                if (id.find()) {
+                    createdIds.add(Long.parseLong(id.group(1)));
+                }
+            }
+            if (!measured) {
+                return;
+            }
+            if (response.statusCode() == 503 && response.headers().firstValue("Retry-After").isPresent()) {
+                operationStats.recordShed();
+            } else if (operation.isSuccess(response.statusCode())) {
+                operationStats.recordSuccess(latency);
+            } else {
+                operationStats.recordError(latency);
+            }
+        } catch (IOException e) {
+            if (measured) {
+                operationStats.recordError(System.nanoTime() - intendedStart);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpRequest request(Operation operation) {
+        return switch (operation) {
+            case GET_BY_ID -> HttpRequest.newBuilder(employeeUri(randomSeededId())).GET()
+                    .timeout(REQUEST_TIMEOUT).build();
+            case LIST -> HttpRequest.newBuilder(URI.create(employeesUri + "?limit=" + config.listLimit())).GET()
+                    .timeout(REQUEST_TIMEOUT).build();
+            case CREATE -> HttpRequest.newBuilder(employeesUri)
+                    .POST(HttpRequest.BodyPublishers.ofString(employeeJson("new")))
+                    .header("Content-Type", "application/json")
+                    .timeout(REQUEST_TIMEOUT).build();
+            case UPDATE -> HttpRequest.newBuilder(employeeUri(randomSeededId()))
+                    .PUT(HttpRequest.BodyPublishers.ofString(employeeJson("upd")))
+                    .header("Content-Type", "application/json")
+                    .timeout(REQUEST_TIMEOUT).build();
+            // with nothing created yet the delete targets an id that cannot exist and answers 404
+            case DELETE -> {
+                Long id = createdIds.poll();
+                yield HttpRequest.newBuilder(employeeUri(id != null ? id : 0L)).DELETE()
+                        .timeout(REQUEST_TIMEOUT).build();
+            }
+        };
+    }
+
+    Operation nextOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Weight " + pick + " outside of the mix");
+    }
+
+    private long randomSeededId() {
+        return seededIds.get(ThreadLocalRandom.current().nextInt(seededIds.size()));
+    }
+
+    private URI employeeUri(long id) {
+        return URI.create(employeesUri + "/" + id);
+    }
+
+    // every write uses a fresh email, so the unique index never turns the workload into conflicts
+    private String employeeJson(String prefix) {
+        long n = sequence.incrementAndGet();
+        return "{\"firstName\":\"First" + n + "\",\"lastName\":\"Last" + n
+                + "\",\"email\":\"" + prefix + n + "@loadtest.test\"}";
+    }
+}
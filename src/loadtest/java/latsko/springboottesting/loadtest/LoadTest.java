@@ -0,0 +1,35 @@
+package latsko.springboottesting.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point of mvn -Ploadtest verify. Exits with status 1 when any operation misses its budget, which
+ * fails the build.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.load();
+
+        Map<Operation, OperationStats> stats;
+        try (LoadTestApplication application = LoadTestApplication.start(config)) {
+            List<Long> seededIds = application.seed(config.seedRows());
+            URI employeesUri = URI.create("http://localhost:" + application.port() + "/api/employees");
+            LoadGenerator generator = config.isClosedModel()
+                    ? new ClosedModelLoadGenerator(config, employeesUri, seededIds)
+                    : new OpenModelLoadGenerator(config, employeesUri, seededIds);
+            stats = generator.run();
+        }
+
+        LatencyReport report = new LatencyReport(config, stats);
+        report.print(System.out);
+        report.write(Path.of(config.reportFile()));
+        System.exit(report.passed() ? 0 : 1);
+    }
+}
@@ -0,0 +1,105 @@
+package latsko.springboottesting.loadtest;
+
+import latsko.springboottesting.UnitTestingApplication;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.service.EmployeeService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the real servlet stack on a random port, against either an in-memory H2 database or a MySQL
+ * Testcontainer configured like the one the integration tests use.
+ */
+final class LoadTestApplication implements AutoCloseable {
+
+    private static final int SEED_CHUNK_SIZE = 1000;
+    private static final int DEFAULT_MAX_CONNECTIONS = 8192;
+
+    private final ConfigurableApplicationContext context;
+    private final MySQLContainer<?> mySqlContainer;
+
+    private LoadTestApplication(ConfigurableApplicationContext context, MySQLContainer<?> mySqlContainer) {
+        this.context = context;
+        this.mySqlContainer = mySqlContainer;
+    }
+
+    static LoadTestApplication start(LoadTestConfig config) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn"));
+        if (config.isClosedModel()) {
+            // every client keeps a connection open, none of them may wait in the accept queue
+            args.add("--server.tomcat.max-connections=" + Math.max(config.clients(), DEFAULT_MAX_CONNECTIONS));
+        }
+        switch (config.threads()) {
+            case "platform" -> {
+            }
+            // the same profile as mvn -Pvirtual-threads spring-boot:run
+            case "virtual" -> args.add("--spring.profiles.active=virtual-threads");
+            default -> throw new IllegalArgumentException("Unknown load test threads: " + config.threads());
+        }
+        MySQLContainer<?> mySqlContainer = null;
+        switch (config.database()) {
+            case "h2" -> args.addAll(List.of(
+                    "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    // the migrations are written for MySQL, H2 gets its schema from Hibernate
+                    "--spring.flyway.enabled=false",
+                    "--spring.jpa.hibernate.ddl-auto=create-drop"));
+            case "mysql" -> {
+                mySqlContainer = new MySQLContainer<>("mysql:latest")
+                        .withUsername("username")
+                        .withPassword("password")
+                        .withDatabaseName("ems");
+                mySqlContainer.start();
+                args.addAll(List.of(
+                        "--spring.datasource.url=" + mySqlContainer.getJdbcUrl(),
+                        "--spring.datasource.username=" + mySqlContainer.getUsername(),
+                        "--spring.datasource.password=" + mySqlContainer.getPassword()));
+            }
+            default -> throw new IllegalArgumentException("Unknown load test database: " + config.database());
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(UnitTestingApplication.class)
+                .run(args.toArray(String[]::new));
+        return new LoadTestApplication(context, mySqlContainer);
+    }
+
+    int port() {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    // seeds through the service and returns the ids the workload reads and updates
+    List<Long> seed(int rows) {
+        EmployeeService employeeService = context.getBean(EmployeeService.class);
+        List<Long> ids = new ArrayList<>(rows);
+        List<Employee> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+        for (int i = 0; i < rows; i++) {
+            chunk.add(Employee.builder()
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .email("seed" + i + "@loadtest.test")
+                    .build());
+            if (chunk.size() == SEED_CHUNK_SIZE || i == rows - 1) {
+                employeeService.saveEmployees(chunk);
+                chunk.forEach(employee -> ids.add(employee.getId()));
+                chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        if (mySqlContainer != null) {
+            mySqlContainer.stop();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package latsko.springboottesting.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Workload and budgets, read from loadtest.properties on the classpath. Any key can be overridden with a
+ * system property of the same name, e.g. -Dloadtest.rate=500.
+ */
+record LoadTestConfig(String database,
+                      String threads,
+                      String model,
+                      int rate,
+                      int clients,
+                      Duration warmup,
+                      Duration duration,
+                      int seedRows,
+                      int listLimit,
+                      int maxInFlight,
+                      Map<Operation, Integer> mix,
+                      Map<Operation, Budget> budgets,
+                      double maxShedRate,
+                      String reportFile) {
+
+    private static final String PREFIX = "loadtest.";
+
+    record Budget(Duration p99, Duration p999, double maxErrorRate) {
+    }
+
+    static LoadTestConfig load() {
+        Properties properties = new Properties();
+        try (InputStream defaults = LoadTestConfig.class.getResourceAsStream("/loadtest.properties")) {
+            if (defaults != null) {
+                properties.load(defaults);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(PREFIX))
+                .forEach(name -> properties.setProperty(name, System.getProperty(name)));
+
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        Map<Operation, Budget> budgets = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            mix.put(operation, Integer.parseInt(required(properties, "mix." + operation.key())));
+            budgets.put(operation, new Budget(
+                    DurationStyle.detectAndParse(required(properties, "budget." + operation.key() + ".p99")),
+                    DurationStyle.detectAndParse(required(properties, "budget." + operation.key() + ".p999")),
+                    Double.parseDouble(required(properties, "budget." + operation.key() + ".max-error-rate"))));
+        }
+        LoadTestConfig config = new LoadTestConfig(
+                required(properties, "database"),
+                required(properties, "threads"),
+                required(properties, "model"),
+                Integer.parseInt(required(properties, "rate")),
+                Integer.parseInt(required(properties, "clients")),
+                DurationStyle.detectAndParse(required(properties, "warmup")),
+                DurationStyle.detectAndParse(required(properties, "duration")),
+                Integer.parseInt(required(properties, "seed-rows")),
+                Integer.parseInt(required(properties, "list-limit")),
+                Integer.parseInt(required(properties, "max-in-flight")),
+                mix,
+                budgets,
+                Double.parseDouble(required(properties, "max-shed-rate")),
+                required(properties, "report-file"));
+        if (config.rate() <= 0 || config.clients() <= 0 || mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException(
+                    "loadtest.rate, loadtest.clients and the sum of loadtest.mix.* must be positive");
+        }
+        if (!config.isClosedModel() && !config.model().equals("open")) {
+            throw new IllegalArgumentException("Unknown load test model: " + config.model());
+        }
+        return config;
+    }
+
+    boolean isClosedModel() {
+        return model.equals("closed");
+    }
+
+    // the line the report starts with
+    String workload() {
+        return isClosedModel() ? clients + " clients" : rate + " req/s";
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(PREFIX + key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing load test property: " + PREFIX + key);
+        }
+        return value.trim();
+    }
+}
@@ -0,0 +1,63 @@
+package latsko.springboottesting.loadtest;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Starts requests at a fixed arrival rate, each on its own virtual thread, so a slow response never delays
+ * the requests scheduled after it. Latency is taken from the time a request was scheduled to start rather
+ * than the time it was actually sent, which keeps a stalled client or server from hiding its own backlog
+ * (coordinated omission).
+ */
+final class OpenModelLoadGenerator extends LoadGenerator {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelLoadGenerator(LoadTestConfig config, URI employeesUri, List<Long> seededIds) {
+        super(config, employeesUri, seededIds);
+    }
+
+    @Override
+    Map<Operation, OperationStats> run() {
+        long rate = config.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intendedStart = start + i * TimeUnit.SECONDS.toNanos(1) / rate;
+                if (intendedStart >= end) {
+                    break;
+                }
+                for (long wait = intendedStart - System.nanoTime(); wait > 0; wait = intendedStart - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                Operation operation = nextOperation();
+                boolean measured = intendedStart >= measureFrom;
+                if (inFlight.incrementAndGet() > config.maxInFlight()) {
+                    inFlight.decrementAndGet();
+                    if (measured) {
+                        stats.get(operation).recordDropped();
+                    }
+                    continue;
+                }
+                requests.execute(() -> {
+                    try {
+                        execute(operation, intendedStart, measured);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        }
+        stats.values().forEach(OperationStats::complete);
+        return stats;
+    }
+}
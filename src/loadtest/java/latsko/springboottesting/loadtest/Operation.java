@@ -0,0 +1,32 @@
+package latsko.springboottesting.loadtest;
+
+import java.util.Set;
+
+/**
+ * The endpoints the workload mixes. Each is reported under its own key and judged against its own budget.
+ */
+enum Operation {
+
+    GET_BY_ID("get", Set.of(200)),
+    LIST("list", Set.of(200)),
+    CREATE("create", Set.of(201)),
+    UPDATE("update", Set.of(200)),
+    // a delete can lose the race for an id to another delete, that is not a server error
+    DELETE("delete", Set.of(200, 404));
+
+    private final String key;
+    private final Set<Integer> expectedStatuses;
+
+    Operation(String key, Set<Integer> expectedStatuses) {
+        this.key = key;
+        this.expectedStatuses = expectedStatuses;
+    }
+
+    String key() {
+        return key;
+    }
+
+    boolean isSuccess(int status) {
+        return expectedStatuses.contains(status);
+    }
+}
@@ -0,0 +1,70 @@
+package latsko.springboottesting.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies, error and shed counts of one operation. Recording is wait-free, so it adds nothing measurable to
+ * the latencies it records.
+ */
+final class OperationStats {
+
+    // latencies are recorded in microseconds, up to one hour, with three significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private Histogram histogram;
+
+    void recordSuccess(long latencyNanos) {
+        recorder.recordValue(toMicros(latencyNanos));
+    }
+
+    void recordError(long latencyNanos) {
+        recorder.recordValue(toMicros(latencyNanos));
+        errors.increment();
+    }
+
+    // a request that was never sent still counts against the error budget, but has no latency
+    void recordDropped() {
+        dropped.increment();
+        errors.increment();
+    }
+
+    // turned away by the server's concurrency limit, judged by the shed budget and kept out of the latencies
+    void recordShed() {
+        shed.increment();
+    }
+
+    /**
+     * Freezes the recorded values, called once after the last request has completed.
+     */
+    void complete() {
+        histogram = recorder.getIntervalHistogram();
+    }
+
+    Histogram histogram() {
+        return histogram;
+    }
+
+    long requests() {
+        return histogram.getTotalCount() + dropped.sum() + shed.sum();
+    }
+
+    long shed() {
+        return shed.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 1), HIGHEST_TRACKABLE_MICROS);
+    }
+}
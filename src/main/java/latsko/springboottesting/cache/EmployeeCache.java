@@ -0,0 +1,124 @@
+package latsko.springboottesting.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import latsko.springboottesting.model.Employee;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongFunction;
+
+/**
+ * Bounded read-through cache of employees by id. Missing ids are cached as well, with a shorter TTL.
+ * Values are copied in and out, so callers can never mutate a cached instance.
+ */
+@Component
+public class EmployeeCache implements MeterBinder {
+
+    private final AsyncCache<Long, Optional<Employee>> cache;
+
+    public EmployeeCache(@Value("${employees.cache.maximum-size:100000}") long maximumSize,
+                         @Value("${employees.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                         @Value("${employees.cache.negative-expire-after-write:30s}") Duration negativeExpireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<Long, Optional<Employee>>() {
+                    @Override
+                    public long expireAfterCreate(Long id, Optional<Employee> employee, long currentTime) {
+                        return (employee.isPresent() ? expireAfterWrite : negativeExpireAfterWrite).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long id, Optional<Employee> employee, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(id, employee, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long id, Optional<Employee> employee, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Loads at most once per id at a time, on the calling thread and outside any map lock, so a virtual thread
+     * blocked on JDBC never pins its carrier. An invalidation racing with a load drops the pending entry, and
+     * the loaded value is then handed to its caller only, so a row read before a delete committed is never
+     * left behind in the cache.
+     */
+    public Optional<Employee> get(long id, LongFunction<Optional<Employee>> loader) {
+        CompletableFuture<Optional<Employee>> pending = new CompletableFuture<>();
+        CompletableFuture<Optional<Employee>> cached = cache.get(id, (key, executor) -> pending);
+        if (cached == pending) {
+            try {
+                pending.complete(loader.apply(id).map(EmployeeCache::copyOf));
+            } catch (RuntimeException e) {
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return cached.join().map(EmployeeCache::copyOf);
+        } catch (CompletionException e) {
+            // another caller's load failed
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Evicts now and, inside a transaction, once more after it completes, so readers cannot repopulate
+     * the entry from rows that are not committed yet.
+     */
+    public void invalidate(long id) {
+        cache.synchronous().invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.synchronous().invalidate(id);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.synchronous().invalidateAll();
+                }
+            });
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    // exposes cache.gets{result=hit|miss}, cache.evictions and cache.size under cache=employees
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "employees");
+    }
+
+    private static Employee copyOf(Employee employee) {
+        return employee.toBuilder().build();
+    }
+}
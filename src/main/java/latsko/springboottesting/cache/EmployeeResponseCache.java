@@ -0,0 +1,161 @@
+package latsko.springboottesting.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import latsko.springboottesting.model.Employee;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encoded {@code GET /api/employees/{id}} bodies, one per content type the Jackson converters produce, kept for
+ * the employee version they were encoded from. A lookup for any other version re-encodes, so a body can never
+ * outlive the row it shows; writes still evict so that stale bodies do not hold on to the byte budget. Bodies
+ * can be kept in direct buffers, which keeps a large cache out of the heap the collector has to trace.
+ */
+@Component
+public class EmployeeResponseCache implements MeterBinder {
+
+    // rough cost of an entry besides its bodies, so tiny bodies still count against the budget
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Map<MediaType, ObjectWriter> writers;
+    private final Cache<Long, Bodies> cache;
+    private final boolean offHeap;
+
+    public EmployeeResponseCache(List<AbstractJackson2HttpMessageConverter> converters,
+                                 @Value("${employees.response-cache.maximum-size:64MB}") DataSize maximumSize,
+                                 @Value("${employees.response-cache.off-heap:false}") boolean offHeap) {
+        this.writers = writers(converters);
+        this.offHeap = offHeap;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .<Long, Bodies>weigher((id, bodies) -> bodies.size())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The first content type the client accepts, in the order of its Accept header, or null if none of them
+     * can be produced. Wildcards pick JSON.
+     */
+    public MediaType select(List<MediaType> acceptable) {
+        for (MediaType accepted : acceptable) {
+            for (MediaType contentType : writers.keySet()) {
+                if (accepted.isCompatibleWith(contentType)) {
+                    return contentType;
+                }
+            }
+        }
+        return null;
+    }
+
+    public List<MediaType> contentTypes() {
+        return List.copyOf(writers.keySet());
+    }
+
+    /**
+     * The body of the employee as {@code contentType}, encoded at most once per version. The buffer is a
+     * private view, reading it does not disturb other callers.
+     */
+    public ByteBuffer get(Employee employee, MediaType contentType) {
+        long version = employee.getVersion();
+        Bodies cached = cache.getIfPresent(employee.getId());
+        ByteBuffer body = cached == null || cached.version() != version ? null : cached.bodies().get(contentType);
+        if (body == null) {
+            body = encode(employee, contentType);
+            ByteBuffer encoded = body;
+            // never replaces bodies of a newer version with ones encoded from an older read
+            cache.asMap().compute(employee.getId(), (id, current) -> current == null || current.version() < version
+                    ? new Bodies(version, Map.of(contentType, encoded))
+                    : current.version() == version ? current.with(contentType, encoded) : current);
+        }
+        return body.asReadOnlyBuffer();
+    }
+
+    public void invalidate(long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // cache.gets, cache.evictions and cache.size under cache=employee-responses, plus the bytes held; a hit on
+    // bodies of another version is counted as a hit, writes evict so that is rare
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "employee-responses");
+        Gauge.builder("employees.response.cache.bytes", cache, c -> c.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0))
+                        .orElse(0L))
+                .tag("storage", offHeap ? "off-heap" : "heap")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private ByteBuffer encode(Employee employee, MediaType contentType) {
+        byte[] bytes;
+        try {
+            bytes = writers.get(contentType).writeValueAsBytes(employee);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return offHeap ? ByteBuffer.allocateDirect(bytes.length).put(bytes).flip() : ByteBuffer.wrap(bytes);
+    }
+
+    // JSON first, so that */* and application/* keep getting what they got before the binary formats existed
+    private static Map<MediaType, ObjectWriter> writers(List<AbstractJackson2HttpMessageConverter> converters) {
+        List<AbstractJackson2HttpMessageConverter> ordered = new ArrayList<>(converters);
+        ordered.sort((a, b) -> Boolean.compare(!a.getSupportedMediaTypes().contains(MediaType.APPLICATION_JSON),
+                !b.getSupportedMediaTypes().contains(MediaType.APPLICATION_JSON)));
+        Map<MediaType, ObjectWriter> writers = new LinkedHashMap<>();
+        for (AbstractJackson2HttpMessageConverter converter : ordered) {
+            for (MediaType contentType : converter.getSupportedMediaTypes()) {
+                if (contentType.isConcrete()) {
+                    writers.putIfAbsent(contentType, converter.getObjectMapper().writerFor(Employee.class));
+                }
+            }
+        }
+        return Collections.unmodifiableMap(writers);
+    }
+
+    private record Bodies(long version, Map<MediaType, ByteBuffer> bodies) {
+
+        Bodies with(MediaType contentType, ByteBuffer body) {
+            Map<MediaType, ByteBuffer> bodies = new HashMap<>(this.bodies);
+            bodies.put(contentType, body);
+            return new Bodies(version, Map.copyOf(bodies));
+        }
+
+        int size() {
+            int size = ENTRY_OVERHEAD;
+            for (ByteBuffer body : bodies.values()) {
+                size += body.capacity();
+            }
+            return size;
+        }
+    }
+}
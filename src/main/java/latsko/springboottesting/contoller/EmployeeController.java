@@ -1,21 +1,78 @@
 package latsko.springboottesting.contoller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import latsko.springboottesting.cache.EmployeeResponseCache;
+import latsko.springboottesting.exception.ResourceAlreadyExistsException;
+import latsko.springboottesting.exception.ResourceNotFoundException;
+import latsko.springboottesting.exception.VersionMismatchException;
+import latsko.springboottesting.ingest.EmployeeIngestQueue;
 import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeeChanges;
+import latsko.springboottesting.model.EmployeeIngestStatus;
+import latsko.springboottesting.model.EmployeePage;
+import latsko.springboottesting.model.EmployeeView;
 import latsko.springboottesting.service.EmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/employees")
 public class EmployeeController {
 
+    private static final Logger log = LoggerFactory.getLogger(EmployeeController.class);
+
+    // employees handed to the service per transaction when reading a batch body
+    static final int BATCH_CHUNK_SIZE = 500;
+    static final int MAX_SEARCH_RESULTS = 100;
+
     private final EmployeeService employeeService;
+    private final ObjectMapper objectMapper;
+    private final EmployeeResponseCache responseCache;
+    private final ContentNegotiationManager contentNegotiationManager;
+    private final EmployeeIngestQueue ingestQueue;
+    private final Duration exportTimeout;
 
-    public EmployeeController(EmployeeService employeeService) {
+    public EmployeeController(EmployeeService employeeService, ObjectMapper objectMapper,
+                              EmployeeResponseCache responseCache, ContentNegotiationManager contentNegotiationManager,
+                              EmployeeIngestQueue ingestQueue,
+                              @Value("${employees.export.timeout:30m}") Duration exportTimeout) {
         this.employeeService = employeeService;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.contentNegotiationManager = contentNegotiationManager;
+        this.ingestQueue = ingestQueue;
+        this.exportTimeout = exportTimeout;
     }
 
     @PostMapping
@@ -24,35 +81,180 @@ public class EmployeeController {
         return employeeService.saveEmployee(employee);
     }
 
-    @GetMapping
-    public List<Employee> getAllEmployees(){
-        return employeeService.getAllEmployees();
+    // write-behind create for bulk onboarding: 202 once the employee is journaled, the ingest writer creates it
+    // together with others in one transaction; 429 while the queue is full
+    @PostMapping(params = "async=true")
+    public ResponseEntity<EmployeeIngestStatus> createEmployeeAsync(@RequestBody Employee employee){
+        return ingestQueue.submit(employee)
+                .map(status -> ResponseEntity.accepted()
+                        .location(URI.create("/api/employees/ingest/" + status.getTrackingId()))
+                        .body(status))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, Long.toString(ingestQueue.retryAfter().toSeconds()))
+                        .build());
     }
 
-    @GetMapping("{id}")
-    public ResponseEntity<Employee> getEmployeeById(@PathVariable("id") long employeeId){
-        return employeeService.getEmployeeById(employeeId)
+    @GetMapping("/ingest/{trackingId}")
+    public ResponseEntity<EmployeeIngestStatus> getIngestStatus(@PathVariable("trackingId") String trackingId){
+        return ingestQueue.getStatus(trackingId)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    @PutMapping("{id}")
-    public ResponseEntity<Employee> updateEmployee(@PathVariable("id") long employeeId,
-                                                   @RequestBody Employee employee){
-        return employeeService.getEmployeeById(employeeId)
-                .map(savedEmployee -> {
+    // accepts a JSON array or NDJSON and answers a JSON array, or NDJSON if asked for, with one result per employee
+    // in the order sent. Both bodies are streamed: each chunk is created in its own transaction and its results
+    // are flushed once it commits. A chunk that fails ends the response with a FAILED result at the index of its
+    // first employee; the chunks before it stay committed, as their results above say
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public void createEmployees(InputStream body, ServletWebRequest request, HttpServletResponse response)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        boolean ndjson = acceptsNdjson(request);
+        response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())
+                .setRootValueSeparator(null);
+        if (!ndjson) {
+            generator.writeStartArray();
+        }
+        int written = 0;
+        try (MappingIterator<Employee> employees = objectMapper.readerFor(Employee.class).readValues(body)) {
+            List<Employee> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+            while (employees.hasNextValue()) {
+                chunk.add(employees.nextValue());
+                if (chunk.size() == BATCH_CHUNK_SIZE) {
+                    written += write(employeeService.saveEmployees(chunk), generator, ndjson);
+                    chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                write(employeeService.saveEmployees(chunk), generator, ndjson);
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Batch create stopped at employee {}", written, e);
+            write(List.of(EmployeeBatchResult.failed(written, batchFailure(e))), generator, ndjson);
+        }
+        if (!ndjson) {
+            generator.writeEndArray();
+        }
+        generator.flush();
+    }
+
+    // legacy unpaged listing, kept behind an explicit opt-in while clients migrate to the paged endpoint;
+    // lists are tagged with the table version, so an unchanged table answers 304 without reading any rows
+    @GetMapping(params = "unpaged=true")
+    public ResponseEntity<List<EmployeeView>> getAllEmployees(ServletWebRequest request)
+            throws HttpMediaTypeNotAcceptableException {
+        MediaType contentType = negotiate(request);
+        return ifModified(request, contentType, employeeService::getAllEmployees);
+    }
+
+    @GetMapping(params = {"firstName", "lastName"})
+    public List<EmployeeView> getEmployeesByName(@RequestParam("firstName") String firstName,
+                                                 @RequestParam("lastName") String lastName){
+        return employeeService.getEmployeesByName(firstName, lastName);
+    }
+
+    // typeahead, best matches first
+    @GetMapping("/search")
+    public List<EmployeeView> searchEmployees(@RequestParam("q") String query,
+                                              @RequestParam(value = "limit", defaultValue = "10") int limit){
+        return employeeService.searchEmployees(query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+    }
 
-                    savedEmployee.setFirstName(employee.getFirstName());
-                    savedEmployee.setLastName(employee.getLastName());
-                    savedEmployee.setEmail(employee.getEmail());
+    @GetMapping
+    public ResponseEntity<EmployeePage> getEmployeesPage(@RequestParam(value = "after", required = false) String after,
+                                         @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                         ServletWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        MediaType contentType = negotiate(request);
+        return ifModified(request, contentType, () -> employeeService.getEmployeesPage(after, limit));
+    }
 
-                    Employee updatedEmployee = employeeService.updateEmployee(savedEmployee);
-                    return new ResponseEntity<>(updatedEmployee, HttpStatus.OK);
+    // incremental sync: the employees created, updated or deleted since the token of the previous call, oldest
+    // first; a client without a token starts from the beginning and gets every employee once
+    @GetMapping("/changes")
+    public EmployeeChanges getChanges(@RequestParam(value = "since", required = false) String since,
+                                      @RequestParam(value = "limit", defaultValue = "100") int limit){
+        return employeeService.getChanges(since, limit);
+    }
 
-                })
+    // the body is written on an async thread; its timeout is the export's own, the async request timeout would
+    // otherwise default to the container's 30s and cut off large exports
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportEmployees(NativeWebRequest request){
+        if (request instanceof AsyncWebRequest asyncRequest) {
+            asyncRequest.setTimeout(exportTimeout.toMillis());
+        }
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                    .setRootValueSeparator(null);
+            employeeService.exportEmployees(employee -> {
+                try {
+                    generator.writeObject(employee);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // a matching If-None-Match is answered 304 before the body is looked up, otherwise the body is copied from
+    // EmployeeResponseCache as is, hot employees are serialized once per version and content type
+    @GetMapping("{id}")
+    public void getEmployeeById(@PathVariable("id") long employeeId, ServletWebRequest request,
+                                HttpServletResponse response) throws IOException, HttpMediaTypeNotAcceptableException {
+        Employee employee = employeeService.getEmployeeById(employeeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Employee not found with given id: " + employeeId));
+        MediaType contentType = negotiate(request);
+        if (request.checkNotModified(eTag(employee.getVersion(), contentType))) {
+            return;
+        }
+        ByteBuffer body = responseCache.get(employee, contentType);
+        response.setContentType(contentType.toString());
+        response.setContentLength(body.remaining());
+        write(body, response.getOutputStream());
+    }
+
+    // with If-Match the update only applies while the employee is still at that version, otherwise 412;
+    // without it the last write wins and, as the new version is not read back, no ETag is returned
+    @PutMapping("{id}")
+    public ResponseEntity<Employee> updateEmployee(@PathVariable("id") long employeeId,
+                                                   @RequestBody Employee employee,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                   String ifMatch){
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return employeeService.updateEmployee(employeeId, employee)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }
+        return employeeService.updateEmployee(employeeId, employee, expectedVersion(ifMatch))
+                .map(updated -> ResponseEntity.ok().eTag(eTag(updated.getVersion())).body(updated))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // applies only the fields present in the body
+    @PatchMapping("{id}")
+    public ResponseEntity<Void> patchEmployee(@PathVariable("id") long employeeId,
+                                              @RequestBody Employee employee,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                              String ifMatch){
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            if (employeeService.patchEmployee(employeeId, employee)) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.notFound().build();
+        }
+        long expectedVersion = expectedVersion(ifMatch);
+        if (employeeService.patchEmployee(employeeId, employee, expectedVersion)) {
+            return ResponseEntity.noContent().eTag(eTag(expectedVersion + 1)).build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+
     @DeleteMapping("{id}")
     public ResponseEntity<String> deleteEmployee(@PathVariable("id") long employeeId){
 
@@ -62,4 +264,111 @@ public class EmployeeController {
 
     }
 
+    @DeleteMapping(params = "ids")
+    public ResponseEntity<String> deleteEmployees(@RequestParam("ids") List<Long> employeeIds){
+
+        int deleted = employeeService.deleteEmployees(employeeIds);
+
+        return new ResponseEntity<>(deleted + " employees deleted successfully!.", HttpStatus.OK);
+    }
+
+    @DeleteMapping(params = "lastName")
+    public ResponseEntity<String> deleteEmployeesByLastName(@RequestParam("lastName") String lastName){
+
+        int deleted = employeeService.deleteEmployeesByLastName(lastName);
+
+        return new ResponseEntity<>(deleted + " employees deleted successfully!.", HttpStatus.OK);
+    }
+
+    // NDJSON only when it is asked for ahead of JSON, so */* keeps getting the array
+    private boolean acceptsNdjson(ServletWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        for (MediaType accepted : contentNegotiationManager.resolveMediaTypes(request)) {
+            if (accepted.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+            if (accepted.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int write(List<EmployeeBatchResult> results, JsonGenerator generator, boolean ndjson)
+            throws IOException {
+        for (EmployeeBatchResult result : results) {
+            generator.writeObject(result);
+            if (ndjson) {
+                generator.writeRaw('\n');
+            }
+        }
+        generator.flush();
+        return results.size();
+    }
+
+    // what the client may be told: conflicts and unreadable input are theirs, anything else stays in the log
+    private static String batchFailure(Exception e) {
+        if (e instanceof ResourceAlreadyExistsException) {
+            return e.getMessage();
+        }
+        if (e instanceof JsonProcessingException jsonException) {
+            return "Unreadable employee: " + jsonException.getOriginalMessage();
+        }
+        return "Employees could not be created";
+    }
+
+    // heap bodies are written in one go, direct ones are copied through a small buffer by the channel
+    private static void write(ByteBuffer body, OutputStream out) throws IOException {
+        if (body.hasArray()) {
+            out.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        } else {
+            Channels.newChannel(out).write(body);
+        }
+    }
+
+    // the content type the body is written in, picked before any ETag is compared as the ETag depends on it
+    private MediaType negotiate(ServletWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        MediaType contentType = responseCache.select(contentNegotiationManager.resolveMediaTypes(request));
+        if (contentType == null) {
+            throw new HttpMediaTypeNotAcceptableException(responseCache.contentTypes());
+        }
+        return contentType;
+    }
+
+    // null once the request is answered 304; the body is written in the content type the ETag was made for
+    private <T> ResponseEntity<T> ifModified(ServletWebRequest request, MediaType contentType, Supplier<T> reader) {
+        T body = employeeService.getIfModified(version -> request.checkNotModified(eTag(version, contentType)),
+                reader);
+        return body == null ? null : ResponseEntity.ok().contentType(contentType).body(body);
+    }
+
+    // strong ETags are the quoted version, of the employee or of the whole table for lists
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // the bytes of a version differ per format, so Smile and CBOR bodies carry theirs, e.g. "3-cbor"; JSON keeps
+    // the bare version that PUT and PATCH hand out
+    private static String eTag(long version, MediaType contentType) {
+        if (contentType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+            return eTag(version);
+        }
+        String subtype = contentType.getSubtype();
+        return "\"" + version + "-" + subtype.substring(subtype.lastIndexOf('-') + 1) + "\"";
+    }
+
+    // If-Match compares strongly, so anything but a single strong ETag of ours can never match; the ETag of any
+    // format names the version
+    private static long expectedVersion(String ifMatch) {
+        String eTag = ifMatch.trim();
+        if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            int format = eTag.indexOf('-');
+            try {
+                return Long.parseLong(eTag.substring(1, format == -1 ? eTag.length() - 1 : format));
+            } catch (NumberFormatException e) {
+                // falls through to the mismatch below
+            }
+        }
+        throw new VersionMismatchException("If-Match does not match the current version: " + ifMatch);
+    }
+
 }
@@ -0,0 +1,63 @@
+package latsko.springboottesting.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured pool with a primary and one pool per replica once replica URLs are set.
+ * Replica pools take the spring.datasource.hikari settings, overridden by employees.datasource.replicas.hikari.
+ */
+@Configuration
+@ConditionalOnProperty(name = "employees.datasource.replicas.urls")
+public class ReadWriteRoutingConfig {
+
+    @Bean
+    public ReadWriteRoutingDataSource dataSource(
+            DataSourceProperties properties, Environment environment, ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${employees.datasource.replicas.urls}") List<String> replicaUrls,
+            @Value("${employees.datasource.replicas.username:${spring.datasource.username}}") String replicaUsername,
+            @Value("${employees.datasource.replicas.password:${spring.datasource.password}}") String replicaPassword,
+            @Value("${employees.datasource.replicas.selection:round-robin}") ReplicaSelection selection) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        List<HikariDataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (String url : replicaUrls) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url)
+                    .username(replicaUsername)
+                    .password(replicaPassword)
+                    .build();
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            binder.bind("employees.datasource.replicas.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        // the pools are not beans, so hikaricp.connections.* is registered here, tagged with the pool name
+        meterRegistry.ifAvailable(registry -> {
+            primary.setMetricRegistry(registry);
+            replicas.forEach(replica -> replica.setMetricRegistry(registry));
+        });
+        return new ReadWriteRoutingDataSource(primary, replicas, selection);
+    }
+}
@@ -0,0 +1,31 @@
+package latsko.springboottesting.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends read-only transactions to the replicas and everything else to the primary. The physical connection
+ * is only fetched at the first statement, after the transaction manager has marked the connection read-only,
+ * so {@code @Transactional(readOnly = true)} is all a service method needs to read from a replica.
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                      ReplicaSelection selection) {
+        super(primary);
+        setReadOnlyDataSource(new ReplicaDataSource(primary, replicas, selection));
+        pools.add(primary);
+        pools.addAll(replicas);
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,93 @@
+package latsko.springboottesting.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections for read-only transactions. Picks a replica pool, or the primary while the thread is pinned
+ * to it; a replica that cannot hand out a connection is skipped, and the primary is the last resort.
+ */
+class ReplicaDataSource extends AbstractDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final ReplicaSelection selection;
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReplicaDataSource(HikariDataSource primary, List<HikariDataSource> replicas, ReplicaSelection selection) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(HikariDataSource::getConnection);
+    }
+
+    // routed like any other connection; whether the pools accept other credentials is up to them
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(pool -> pool.getConnection(username, password));
+    }
+
+    private Connection connection(ConnectionSource source) throws SQLException {
+        if (ReplicaRouting.isPinnedToPrimary()) {
+            return source.get(primary);
+        }
+        int first = select();
+        for (int i = 0; i < replicas.size(); i++) {
+            HikariDataSource replica = replicas.get((first + i) % replicas.size());
+            try {
+                return source.get(replica);
+            } catch (SQLFeatureNotSupportedException e) {
+                // not an outage, no other pool would do better
+                throw e;
+            } catch (SQLException e) {
+                log.warn("Replica pool {} has no connection, trying the next one", replica.getPoolName(), e);
+            }
+        }
+        return source.get(primary);
+    }
+
+    private int select() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (selection == ReplicaSelection.ROUND_ROBIN) {
+            return start;
+        }
+        int best = start;
+        int fewest = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            int candidate = (start + i) % replicas.size();
+            int load = load(replicas.get(candidate));
+            if (load < fewest) {
+                best = candidate;
+                fewest = load;
+            }
+        }
+        return best;
+    }
+
+    // connections in use plus threads waiting for one; a pool that has not started yet is idle
+    private static int load(HikariDataSource replica) {
+        HikariPoolMXBean pool = replica.getHikariPoolMXBean();
+        return pool != null ? pool.getActiveConnections() + pool.getThreadsAwaitingConnection() : 0;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+
+        Connection get(HikariDataSource pool) throws SQLException;
+    }
+}
@@ -0,0 +1,45 @@
+package latsko.springboottesting.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Pins read-only work on the current thread to the primary. Used for reads that must see the latest commit:
+ * a client's reads right after its own write, and loads whose result is cached for longer than a replica
+ * may lag. Has no effect when no replicas are configured.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED_TO_PRIMARY.get());
+    }
+
+    // closing the pin restores the previous state, so pins nest
+    public static Pin pinToPrimary() {
+        Boolean previous = PINNED_TO_PRIMARY.get();
+        PINNED_TO_PRIMARY.set(true);
+        return () -> {
+            if (previous == null) {
+                PINNED_TO_PRIMARY.remove();
+            } else {
+                PINNED_TO_PRIMARY.set(previous);
+            }
+        };
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        try (Pin pin = pinToPrimary()) {
+            return work.get();
+        }
+    }
+
+    public interface Pin extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
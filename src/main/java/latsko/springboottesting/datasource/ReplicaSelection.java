@@ -0,0 +1,8 @@
+package latsko.springboottesting.datasource;
+
+public enum ReplicaSelection {
+    // each replica in turn
+    ROUND_ROBIN,
+    // the replica with the fewest connections in use, ties broken in turn
+    LEAST_LOADED
+}
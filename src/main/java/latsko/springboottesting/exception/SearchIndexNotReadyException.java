@@ -0,0 +1,12 @@
+package latsko.springboottesting.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class SearchIndexNotReadyException extends RuntimeException{
+
+    public SearchIndexNotReadyException(String message){
+        super(message);
+    }
+}
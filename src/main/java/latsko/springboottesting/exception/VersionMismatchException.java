@@ -0,0 +1,12 @@
+package latsko.springboottesting.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class VersionMismatchException extends RuntimeException{
+
+    public VersionMismatchException(String message){
+        super(message);
+    }
+}
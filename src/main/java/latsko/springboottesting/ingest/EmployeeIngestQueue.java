@@ -0,0 +1,292 @@
+package latsko.springboottesting.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import latsko.springboottesting.exception.ResourceAlreadyExistsException;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeeIngestStatus;
+import latsko.springboottesting.service.EmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind creates for {@code POST /api/employees?async=true}. Each employee is journaled, queued and
+ * answered with a tracking id; a single writer drains the queue in batches of up to {@code batch-size},
+ * waiting at most {@code linger} for a batch to fill, and creates each batch through
+ * {@link EmployeeService#saveEmployees} in one transaction. A full queue rejects instead of growing, and
+ * employees still in the journal after a crash are queued again on the next start.
+ */
+@Component
+@Profile("!reactive")
+public class EmployeeIngestQueue implements MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeIngestQueue.class);
+
+    private final EmployeeService employeeService;
+    private final IngestJournal journal;
+    private final BlockingQueue<Queued> queue;
+    private final Cache<String, EmployeeIngestStatus> statuses;
+    private final int batchSize;
+    private final Duration linger;
+    private final Duration retryAfter;
+    private final ReentrantLock submitLock = new ReentrantLock();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("employee-ingest-writer").daemon().factory());
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile DistributionSummary batchSizes;
+
+    public EmployeeIngestQueue(EmployeeService employeeService, ObjectMapper objectMapper,
+                               @Value("${employees.ingest.journal:employees-ingest.journal}") Path journal,
+                               @Value("${employees.ingest.journal-compact-above:64MB}") DataSize compactAbove,
+                               @Value("${employees.ingest.capacity:10000}") int capacity,
+                               @Value("${employees.ingest.batch-size:500}") int batchSize,
+                               @Value("${employees.ingest.linger:50ms}") Duration linger,
+                               @Value("${employees.ingest.status-retention:1h}") Duration statusRetention,
+                               @Value("${employees.ingest.status-maximum-size:100000}") long statusMaximumSize,
+                               @Value("${employees.ingest.retry-after:1s}") Duration retryAfter) {
+        this.employeeService = employeeService;
+        this.journal = new IngestJournal(journal, objectMapper, compactAbove.toBytes());
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.statuses = Caffeine.newBuilder()
+                .expireAfterWrite(statusRetention)
+                .maximumSize(statusMaximumSize)
+                .build();
+        this.batchSize = batchSize;
+        this.linger = linger;
+        this.retryAfter = retryAfter;
+    }
+
+    // before the bean is handed out, so no submit finds the journal closed; requeues what it still holds
+    @PostConstruct
+    public void open() throws IOException {
+        Map<String, Employee> recovered = journal.open();
+        recovered.forEach((trackingId, employee) -> {
+            statuses.put(trackingId, EmployeeIngestStatus.queued(trackingId));
+            // may exceed the capacity once, only submits are bounded
+            queue.add(new Queued(trackingId, employee));
+        });
+        if (!recovered.isEmpty()) {
+            log.info("Requeued {} employees from the ingest journal", recovered.size());
+        }
+    }
+
+    // starts the writer once the schema is migrated
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        writer.execute(this::drain);
+    }
+
+    /**
+     * Journals and queues the employee, or returns empty if the queue is full. The employee is on disk by the
+     * time this returns.
+     */
+    public Optional<EmployeeIngestStatus> submit(Employee employee) {
+        String trackingId = UUID.randomUUID().toString();
+        EmployeeIngestStatus status = EmployeeIngestStatus.queued(trackingId);
+        long position;
+        // the capacity check and the offer must not interleave with other submits, or a journaled
+        // employee could find the queue full
+        submitLock.lock();
+        try {
+            if (queue.remainingCapacity() == 0) {
+                rejected.incrementAndGet();
+                return Optional.empty();
+            }
+            statuses.put(trackingId, status);
+            position = journal.append(trackingId, employee);
+            queue.add(new Queued(trackingId, employee));
+        } catch (IOException e) {
+            statuses.invalidate(trackingId);
+            throw new UncheckedIOException(e);
+        } finally {
+            submitLock.unlock();
+        }
+        // outside the lock, submits arriving during an fsync append meanwhile and share the next one
+        try {
+            journal.sync(position);
+        } catch (IOException e) {
+            // already queued, the writer may still create it; the caller just can't be told it is safe
+            throw new UncheckedIOException(e);
+        }
+        return Optional.of(status);
+    }
+
+    public Optional<EmployeeIngestStatus> getStatus(String trackingId) {
+        return Optional.ofNullable(statuses.getIfPresent(trackingId));
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("employees.ingest.queue.depth", queue, BlockingQueue::size)
+                .description("Employees waiting for the ingest writer")
+                .register(registry);
+        FunctionCounter.builder("employees.ingest.rejected", rejected, AtomicLong::get)
+                .description("Async creates rejected with 429 because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("employees.ingest.journal.syncs", journal, IngestJournal::syncs)
+                .description("Journal fsyncs made for submits, fewer than submits when they share one")
+                .register(registry);
+        batchSizes = DistributionSummary.builder("employees.ingest.batch.size")
+                .description("Employees created per ingest transaction")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // stops taking from the queue, whatever is left stays in the journal for the next start
+    @Override
+    public void destroy() throws IOException {
+        writer.shutdownNow();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    private void drain() {
+        List<Queued> batch = new ArrayList<>(batchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + linger.toNanos();
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    Queued next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // shutting down
+        }
+    }
+
+    // only transient failures get here, retried for as long as the database is unreachable; the employees
+    // are safe in the journal meanwhile
+    private void write(List<Queued> batch) throws InterruptedException {
+        DistributionSummary sizes = batchSizes;
+        if (sizes != null) {
+            sizes.record(batch.size());
+        }
+        while (true) {
+            try {
+                writeBatch(batch);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Ingest batch of {} employees failed, retrying in {}", batch.size(), retryAfter, e);
+                Thread.sleep(retryAfter.toMillis());
+            }
+        }
+    }
+
+    private void writeBatch(List<Queued> batch) {
+        List<EmployeeBatchResult> results;
+        try {
+            results = employeeService.saveEmployees(batch.stream().map(Queued::newEmployee).toList());
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            // an email created concurrently or a bad row fails the whole batch, one at a time tells which
+            writeOneByOne(batch);
+            return;
+        }
+        List<EmployeeIngestStatus> done = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            done.add(EmployeeIngestStatus.of(batch.get(i).trackingId(), results.get(i)));
+        }
+        complete(done);
+    }
+
+    // completes employees as it goes, so a retry after a transient failure only repeats the rest
+    private void writeOneByOne(List<Queued> batch) {
+        for (Iterator<Queued> queued = batch.iterator(); queued.hasNext(); ) {
+            Queued next = queued.next();
+            EmployeeIngestStatus status;
+            try {
+                status = EmployeeIngestStatus.of(next.trackingId(),
+                        EmployeeBatchResult.created(employeeService.saveEmployee(next.newEmployee())));
+            } catch (ResourceAlreadyExistsException e) {
+                status = EmployeeIngestStatus.of(next.trackingId(),
+                        EmployeeBatchResult.conflict(next.employee(), e.getMessage()));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw e;
+                }
+                status = EmployeeIngestStatus.failed(next.trackingId(), e.getMessage());
+            }
+            complete(List.of(status));
+            queued.remove();
+        }
+    }
+
+    private void complete(List<EmployeeIngestStatus> done) {
+        done.forEach(status -> statuses.put(status.getTrackingId(), status));
+        try {
+            journal.complete(done.stream().map(EmployeeIngestStatus::getTrackingId).toList());
+        } catch (IOException e) {
+            // they are created, at worst a restart replays them and they come back as conflicts
+            log.error("Could not mark {} ingested employees as done in the journal", done.size(), e);
+        }
+    }
+
+    private static boolean isTransient(Throwable e) {
+        return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private record Queued(String trackingId, Employee employee) {
+
+        // a fresh copy per attempt, a rolled back attempt leaves its generated id on the instance it saved
+        Employee newEmployee() {
+            return employee.toBuilder().id(0).build();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package latsko.springboottesting.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import latsko.springboottesting.model.Employee;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only file of queued employees and of the tracking ids that are done, one JSON object per line. An
+ * employee is forced to disk before its POST is answered, so everything that got a 202 is either created or
+ * still in the file. Appends only write, {@link #sync} forces them: one fsync covers every append written
+ * before it, so concurrent submits share it (group commit). Done entries are dropped by rewriting the file with
+ * the pending ones only, on open and whenever it outgrows {@code compactAbove}. One process per file.
+ */
+final class IngestJournal implements Closeable {
+
+    private static final String QUEUED = "queued";
+    private static final String DONE = "done";
+
+    private final Path file;
+    private final ObjectWriter entryWriter;
+    private final ObjectReader entryReader;
+    private final long compactAbove;
+    // locks instead of synchronized, the fsync must not pin the carrier of a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    // taken before lock, one fsync at a time while appends keep going
+    private final ReentrantLock syncLock = new ReentrantLock();
+    // the lines of entries that are not done, all a rewrite keeps
+    private final Map<String, byte[]> pending = new LinkedHashMap<>();
+    private FileChannel channel;
+    // bytes appended since the journal was opened, and how many of them are known to be on disk; guarded by lock
+    private long written;
+    private long synced;
+    private long syncs;
+
+    IngestJournal(Path file, ObjectMapper objectMapper, long compactAbove) {
+        this.file = file;
+        this.entryWriter = objectMapper.writerFor(Entry.class);
+        this.entryReader = objectMapper.readerFor(Entry.class);
+        this.compactAbove = compactAbove;
+    }
+
+    /**
+     * Opens the file for appending and returns the employees that were queued but never done, in the order
+     * they were queued.
+     */
+    Map<String, Employee> open() throws IOException {
+        lock.lock();
+        try {
+            Map<String, Employee> recovered = new LinkedHashMap<>();
+            if (Files.exists(file)) {
+                try (BufferedReader lines = Files.newBufferedReader(file)) {
+                    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                        Entry entry;
+                        try {
+                            entry = entryReader.readValue(line);
+                        } catch (JsonProcessingException e) {
+                            // the tail of a write cut short by a crash, the rewrite below drops it
+                            continue;
+                        }
+                        if (QUEUED.equals(entry.type())) {
+                            recovered.put(entry.trackingId(), entry.employee());
+                            pending.put(entry.trackingId(), line(entry));
+                        } else {
+                            recovered.remove(entry.trackingId());
+                            pending.remove(entry.trackingId());
+                        }
+                    }
+                }
+            } else if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            rewrite();
+            return recovered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the employee without forcing it and returns the position to pass to {@link #sync}.
+     */
+    long append(String trackingId, Employee employee) throws IOException {
+        byte[] line = line(new Entry(QUEUED, trackingId, employee));
+        lock.lock();
+        try {
+            writeFully(channel, line);
+            pending.put(trackingId, line);
+            written += line.length;
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns once everything up to the position is on disk. Callers that queue up behind an fsync usually find
+     * their appends covered by it and return without one of their own.
+     */
+    void sync(long position) throws IOException {
+        syncLock.lock();
+        try {
+            FileChannel current;
+            long target;
+            lock.lock();
+            try {
+                if (synced >= position) {
+                    return;
+                }
+                current = channel;
+                target = written;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                // a rewrite replaced the channel meanwhile, and forced everything written before it
+                lock.lock();
+                try {
+                    if (channel == current) {
+                        throw e;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            lock.lock();
+            try {
+                synced = Math.max(synced, target);
+                syncs++;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // one write and one fsync for the whole batch
+    void complete(Collection<String> trackingIds) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (String trackingId : trackingIds) {
+            lines.writeBytes(line(new Entry(DONE, trackingId, null)));
+        }
+        lock.lock();
+        try {
+            byte[] bytes = lines.toByteArray();
+            writeFully(channel, bytes);
+            channel.force(false);
+            written += bytes.length;
+            // covers the appends written before as well
+            synced = written;
+            pending.keySet().removeAll(trackingIds);
+            if (channel.size() > compactAbove) {
+                rewrite();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long syncs() {
+        lock.lock();
+        try {
+            return syncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int pending() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // written next to the journal and moved over it, a crash leaves either the old or the new file
+    private void rewrite() throws IOException {
+        Path rewritten = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(rewritten, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (byte[] line : pending.values()) {
+                writeFully(out, line);
+            }
+            out.force(true);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(rewritten, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        synced = written;
+    }
+
+    private byte[] line(Entry entry) throws JsonProcessingException {
+        byte[] json = entryWriter.writeValueAsBytes(entry);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    record Entry(String type, String trackingId, Employee employee) {
+    }
+}
@@ -0,0 +1,32 @@
+package latsko.springboottesting.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()} and
+ * {@link #stop()}. Outside of such a window inspecting a statement costs one thread-local read.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    // returns the statements counted since start(), or 0 when no count was started
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count != null ? count[0] : 0;
+    }
+}
@@ -1,21 +1,35 @@
 package latsko.springboottesting.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Setter
 @Getter
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 
 @Entity
-@Table(name = "employees")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Employee.CACHE_REGION)
+@Table(name = "employees",
+        uniqueConstraints = @UniqueConstraint(name = Employee.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email"))
 public class Employee {
 
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_employees_email";
+
+    // second-level cache regions, sized in hibernate-jcache.conf
+    public static final String CACHE_REGION = "employees";
+    public static final String FINDER_CACHE_REGION = "employee-finders";
+
+    // pooled sequence ids keep Hibernate JDBC insert batching enabled, IDENTITY would disable it
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employees_seq")
+    @SequenceGenerator(name = "employees_seq", sequenceName = "employees_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "first_name", nullable = false)
@@ -26,4 +40,9 @@ public class Employee {
 
     @Column(nullable = false)
     private String email;
+
+    // bumped by every update, clients only see it as the ETag and send it back in If-Match
+    @Version
+    @JsonIgnore
+    private long version;
 }
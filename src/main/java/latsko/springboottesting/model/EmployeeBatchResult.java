@@ -0,0 +1,39 @@
+package latsko.springboottesting.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class EmployeeBatchResult {
+
+    public enum Status {
+        CREATED,
+        CONFLICT,
+        // the batch stopped here, at the first employee that was not created
+        FAILED
+    }
+
+    private Status status;
+
+    private Employee employee;
+
+    private String message;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer index;
+
+    public static EmployeeBatchResult created(Employee employee) {
+        return new EmployeeBatchResult(Status.CREATED, employee, null, null);
+    }
+
+    public static EmployeeBatchResult conflict(Employee employee, String message) {
+        return new EmployeeBatchResult(Status.CONFLICT, employee, message, null);
+    }
+
+    public static EmployeeBatchResult failed(int index, String message) {
+        return new EmployeeBatchResult(Status.FAILED, null, message, index);
+    }
+}
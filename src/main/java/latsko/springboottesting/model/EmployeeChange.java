@@ -0,0 +1,18 @@
+package latsko.springboottesting.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// one entry of the change feed: the current state of a created or updated employee, or only the id of a deleted one
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EmployeeChange(@JsonIgnore long changeSeq, long id, String firstName, String lastName, String email,
+                             boolean deleted) {
+
+    public EmployeeChange(long changeSeq, long id, String firstName, String lastName, String email) {
+        this(changeSeq, id, firstName, lastName, email, false);
+    }
+
+    public EmployeeChange(long changeSeq, long id) {
+        this(changeSeq, id, null, null, null, true);
+    }
+}
@@ -0,0 +1,31 @@
+package latsko.springboottesting.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * The change feed's row for one employee: the table version of the last transaction that wrote the employee, and
+ * whether that write deleted it. Kept out of the employees table, so stamping it neither rewrites employee rows nor
+ * evicts them from the second-level cache. Only written through JPQL in
+ * {@link latsko.springboottesting.repository.EmployeeRepository}, after the table version was bumped.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "employee_changes")
+public class EmployeeChangeLog {
+
+    @Id
+    @Column(name = "employee_id")
+    private long employeeId;
+
+    @Column(name = "change_seq", nullable = false)
+    private long changeSeq;
+
+    @Column(nullable = false)
+    private boolean deleted;
+}
@@ -0,0 +1,78 @@
+package latsko.springboottesting.model;
+
+import latsko.springboottesting.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class EmployeeChanges {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private List<EmployeeChange> changes;
+
+    // opaque token to pass as "since" on the next sync, never null; unchanged when there was nothing new
+    private String nextToken;
+
+    // more changes are already waiting, the client can ask again right away instead of on its next sync
+    private boolean hasMore;
+
+    /**
+     * Position in the feed after which changes are returned, the change sequence and id of the last change a
+     * client has seen. Rows written by one transaction share a change sequence, the id tells where in such a
+     * group a page ended.
+     */
+    public record Token(long changeSeq, long id) {
+
+        // before every row, including the ones that predate the feed and still have change sequence 0
+        public static final Token START = new Token(-1, 0);
+    }
+
+    public static int pageSize(int requestedLimit) {
+        return Math.max(1, Math.min(requestedLimit, MAX_PAGE_SIZE));
+    }
+
+    // builds a page from up to pageSize + 1 changes after since, the extra change only tells that more are waiting
+    public static EmployeeChanges of(List<EmployeeChange> changes, int pageSize, Token since) {
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
+        }
+        if (changes.isEmpty()) {
+            return new EmployeeChanges(changes, encodeToken(since), false);
+        }
+        EmployeeChange last = changes.get(changes.size() - 1);
+        return new EmployeeChanges(changes, encodeToken(new Token(last.changeSeq(), last.id())), hasMore);
+    }
+
+    public static String encodeToken(Token token) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((token.changeSeq() + "." + token.id()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Token decodeToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return Token.START;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('.');
+            if (separator < 0) {
+                throw new InvalidCursorException("Invalid change token: " + token);
+            }
+            long changeSeq = Long.parseLong(decoded.substring(0, separator));
+            long id = Long.parseLong(decoded.substring(separator + 1));
+            if (changeSeq < Token.START.changeSeq() || id < 0) {
+                throw new InvalidCursorException("Invalid change token: " + token);
+            }
+            return new Token(changeSeq, id);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid change token: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package latsko.springboottesting.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// where an employee sent with POST /api/employees?async=true is, looked up by its tracking id
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class EmployeeIngestStatus {
+
+    public enum Status {
+        QUEUED,
+        CREATED,
+        CONFLICT,
+        FAILED
+    }
+
+    private String trackingId;
+
+    private Status status;
+
+    private Long employeeId;
+
+    private String message;
+
+    public static EmployeeIngestStatus queued(String trackingId) {
+        return new EmployeeIngestStatus(trackingId, Status.QUEUED, null, null);
+    }
+
+    public static EmployeeIngestStatus of(String trackingId, EmployeeBatchResult result) {
+        return result.getStatus() == EmployeeBatchResult.Status.CREATED
+                ? new EmployeeIngestStatus(trackingId, Status.CREATED, result.getEmployee().getId(), null)
+                : new EmployeeIngestStatus(trackingId, Status.CONFLICT, null, result.getMessage());
+    }
+
+    public static EmployeeIngestStatus failed(String trackingId, String message) {
+        return new EmployeeIngestStatus(trackingId, Status.FAILED, null, message);
+    }
+}
@@ -0,0 +1,54 @@
+package latsko.springboottesting.model;
+
+import latsko.springboottesting.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class EmployeePage {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private List<EmployeeView> content;
+
+    // opaque cursor to pass as "after" for the next page, null on the last page
+    private String nextCursor;
+
+    public static int pageSize(int requestedLimit) {
+        return Math.max(1, Math.min(requestedLimit, MAX_PAGE_SIZE));
+    }
+
+    // builds a page from up to pageSize + 1 rows, the extra row only tells that a next page exists
+    public static EmployeePage of(List<EmployeeView> employees, int pageSize) {
+        if (employees.size() <= pageSize) {
+            return new EmployeePage(employees, null);
+        }
+        List<EmployeeView> content = employees.subList(0, pageSize);
+        return new EmployeePage(content, encodeCursor(content.get(pageSize - 1).id()));
+    }
+
+    public static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            long lastId = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (lastId < 0) {
+                throw new InvalidCursorException("Invalid page cursor: " + cursor);
+            }
+            return lastId;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid page cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package latsko.springboottesting.model;
+
+// read-only projection of an employee row, never attached to the persistence context
+public record EmployeeView(long id, String firstName, String lastName, String email) {
+
+    public static EmployeeView of(Employee employee) {
+        return new EmployeeView(employee.getId(), employee.getFirstName(), employee.getLastName(), employee.getEmail());
+    }
+
+    public Employee toEmployee() {
+        return Employee.builder()
+                .id(id)
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(email)
+                .build();
+    }
+}
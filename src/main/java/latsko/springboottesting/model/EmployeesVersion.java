@@ -0,0 +1,25 @@
+package latsko.springboottesting.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * The single row of employees_version, a counter every write to the employees table bumps in the same
+ * transaction. Only read and bumped through JPQL in {@link latsko.springboottesting.repository.EmployeeRepository}.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "employees_version")
+public class EmployeesVersion {
+
+    @Id
+    private int id;
+
+    @Column(nullable = false)
+    private long version;
+}
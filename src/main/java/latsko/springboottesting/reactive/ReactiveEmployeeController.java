@@ -0,0 +1,136 @@
+package latsko.springboottesting.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import latsko.springboottesting.exception.ResourceAlreadyExistsException;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeePage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking variant of {@link latsko.springboottesting.contoller.EmployeeController} with the same contract.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/employees")
+public class ReactiveEmployeeController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveEmployeeController.class);
+
+    static final int BATCH_CHUNK_SIZE = 500;
+
+    private final ReactiveEmployeeService employeeService;
+
+    public ReactiveEmployeeController(ReactiveEmployeeService employeeService) {
+        this.employeeService = employeeService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Employee> createEmployee(@RequestBody Employee employee){
+        return employeeService.saveEmployee(employee);
+    }
+
+    // JSON arrays and NDJSON bodies are both decoded element by element; a chunk's results go out once its
+    // transaction commits, and a chunk that fails ends them with a FAILED result at the index of its first employee
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<EmployeeBatchResult> createEmployees(@RequestBody Flux<Employee> employees){
+        return Flux.defer(() -> {
+            AtomicInteger written = new AtomicInteger();
+            return employees.buffer(BATCH_CHUNK_SIZE)
+                    // unreadable input waits for the chunk being created, a failed chunk stops the ones after it
+                    .concatMapDelayError(chunk -> employeeService.saveEmployees(chunk).collectList(), false, 1)
+                    .doOnNext(results -> written.addAndGet(results.size()))
+                    // before flattening, which would drop the results still queued when the error passes
+                    .onErrorResume(e -> {
+                        log.warn("Batch create stopped at employee {}", written.get(), e);
+                        return Mono.just(List.of(EmployeeBatchResult.failed(written.get(), batchFailure(e))));
+                    })
+                    .flatMapIterable(results -> results);
+        });
+    }
+
+    @GetMapping(params = "unpaged=true")
+    public Flux<Employee> getAllEmployees(){
+        return employeeService.getAllEmployees();
+    }
+
+    @GetMapping
+    public Mono<EmployeePage> getEmployeesPage(@RequestParam(value = "after", required = false) String after,
+                                               @RequestParam(value = "limit", defaultValue = "50") int limit){
+        return employeeService.getEmployeesPage(after, limit);
+    }
+
+    // demand from the connection drives how fast rows are read
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Employee> exportEmployees(){
+        return employeeService.getAllEmployees();
+    }
+
+    @GetMapping("{id}")
+    public Mono<ResponseEntity<Employee>> getEmployeeById(@PathVariable("id") long employeeId){
+        return employeeService.getEmployeeById(employeeId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("{id}")
+    public Mono<ResponseEntity<Employee>> updateEmployee(@PathVariable("id") long employeeId,
+                                                         @RequestBody Employee employee){
+        return employeeService.updateEmployee(employeeId, employee)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping("{id}")
+    public Mono<ResponseEntity<Void>> patchEmployee(@PathVariable("id") long employeeId,
+                                                    @RequestBody Employee employee){
+        return employeeService.patchEmployee(employeeId, employee)
+                .map(patched -> patched
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
+    }
+
+    @DeleteMapping("{id}")
+    public Mono<ResponseEntity<String>> deleteEmployee(@PathVariable("id") long employeeId){
+        return employeeService.deleteEmployee(employeeId)
+                .thenReturn(new ResponseEntity<>("Employee deleted successfully!.", HttpStatus.OK));
+    }
+
+    @DeleteMapping(params = "ids")
+    public Mono<ResponseEntity<String>> deleteEmployees(@RequestParam("ids") List<Long> employeeIds){
+        return employeeService.deleteEmployees(employeeIds)
+                .map(deleted -> new ResponseEntity<>(deleted + " employees deleted successfully!.", HttpStatus.OK));
+    }
+
+    @DeleteMapping(params = "lastName")
+    public Mono<ResponseEntity<String>> deleteEmployeesByLastName(@RequestParam("lastName") String lastName){
+        return employeeService.deleteEmployeesByLastName(lastName)
+                .map(deleted -> new ResponseEntity<>(deleted + " employees deleted successfully!.", HttpStatus.OK));
+    }
+
+    // what the client may be told: conflicts and unreadable input are theirs, anything else stays in the log
+    private static String batchFailure(Throwable e) {
+        if (e instanceof ResourceAlreadyExistsException) {
+            return e.getMessage();
+        }
+        if (e instanceof ServerWebInputException inputException) {
+            Throwable cause = inputException.getMostSpecificCause();
+            return "Unreadable employee: " + (cause instanceof JsonProcessingException jsonException
+                    ? jsonException.getOriginalMessage() : cause.getMessage());
+        }
+        return "Employees could not be created";
+    }
+}
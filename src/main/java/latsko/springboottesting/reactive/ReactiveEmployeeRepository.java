@@ -0,0 +1,191 @@
+package latsko.springboottesting.reactive;
+
+import io.r2dbc.spi.Readable;
+import latsko.springboottesting.model.Employee;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * R2DBC counterpart of {@link latsko.springboottesting.repository.EmployeeRepository} over the same schema.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveEmployeeRepository {
+
+    private static final String SELECT_EMPLOYEES = "select id, first_name, last_name, email, version from employees";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveEmployeeRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Employee> findById(long id) {
+        return databaseClient.sql(SELECT_EMPLOYEES + " where id = :id")
+                .bind("id", id)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .one();
+    }
+
+    public Mono<Employee> findByEmail(String email) {
+        return databaseClient.sql(SELECT_EMPLOYEES + " where email = :email")
+                .bind("email", email)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .one();
+    }
+
+    // same lookup as findByJPQL / findByNativeSQL
+    public Mono<Employee> findByFirstNameAndLastName(String firstName, String lastName) {
+        return databaseClient.sql(SELECT_EMPLOYEES + " where first_name = :firstName and last_name = :lastName")
+                .bind("firstName", firstName)
+                .bind("lastName", lastName)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .first();
+    }
+
+    // rows are emitted as the driver reads them, so a slow subscriber slows the read instead of buffering
+    public Flux<Employee> findAll() {
+        return databaseClient.sql(SELECT_EMPLOYEES + " order by id")
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .all();
+    }
+
+    public Flux<Employee> findByIdGreaterThan(long id, int limit) {
+        return databaseClient.sql(SELECT_EMPLOYEES + " where id > :id order by id limit :limit")
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .all();
+    }
+
+    public Flux<String> findExistingEmails(Collection<String> emails) {
+        return databaseClient.sql("select email from employees where email in (:emails)")
+                .bind("emails", emails)
+                .map(row -> row.get("email", String.class))
+                .all();
+    }
+
+    /**
+     * Claims {@code count} consecutive ids from the sequence table Hibernate uses for Employee and returns the
+     * first. Hibernate runs the pooled-lo optimizer, which claims [value, value + allocationSize) the same way, by
+     * reading the value and moving it past its block, so the blocks never overlap. Must run inside a transaction.
+     */
+    public Mono<Long> nextIds(int count) {
+        return databaseClient.sql("select next_val from employees_seq for update")
+                .map(row -> row.get("next_val", Long.class))
+                .one()
+                .flatMap(first -> databaseClient.sql("update employees_seq set next_val = next_val + :count")
+                        .bind("count", count)
+                        .fetch()
+                        .rowsUpdated()
+                        .thenReturn(first));
+    }
+
+    public Mono<Employee> insert(Employee employee) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("insert into employees " +
+                        "(id, first_name, last_name, email) values (:id, :firstName, :lastName, :email)")
+                .bind("id", employee.getId());
+        return bindNames(spec, employee.getFirstName(), employee.getLastName(), employee.getEmail())
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(employee);
+    }
+
+    public Mono<Long> update(long id, String firstName, String lastName, String email) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("update employees set first_name = :firstName, " +
+                        "last_name = :lastName, email = :email, version = version + 1 where id = :id")
+                .bind("id", id);
+        return bindNames(spec, firstName, lastName, email).fetch().rowsUpdated();
+    }
+
+    public Mono<Long> patch(long id, String firstName, String lastName, String email) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("update employees set " +
+                        "first_name = coalesce(:firstName, first_name), last_name = coalesce(:lastName, last_name), " +
+                        "email = coalesce(:email, email), version = version + 1 where id = :id")
+                .bind("id", id);
+        return bindNames(spec, firstName, lastName, email).fetch().rowsUpdated();
+    }
+
+    // the change log statements of EmployeeRepository, run right after incrementTableVersion
+    public Mono<Long> insertChanges(Collection<Long> ids) {
+        return databaseClient.sql("insert into employee_changes (employee_id, change_seq, deleted) " +
+                        "select e.id, v.version, 0 from employees e, employees_version v where e.id in (:ids) " +
+                        "and not exists (select 1 from employee_changes c where c.employee_id = e.id)")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> stampChanges(Collection<Long> ids) {
+        return databaseClient.sql("update employee_changes set change_seq = (select version from employees_version) " +
+                        "where employee_id in (:ids) and deleted = 0")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> stampDeletions(Collection<Long> ids) {
+        return databaseClient.sql("update employee_changes set change_seq = (select version from employees_version), " +
+                        "deleted = 1 where employee_id in (:ids) and deleted = 0")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Flux<Long> findIdsByLastNameForUpdate(String lastName) {
+        return databaseClient.sql("select id from employees where last_name = :lastName for update")
+                .bind("lastName", lastName)
+                .map(row -> row.get("id", Long.class))
+                .all();
+    }
+
+    public Mono<Long> deleteById(long id) {
+        return databaseClient.sql("delete from employees where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteByIdIn(Collection<Long> ids) {
+        return databaseClient.sql("delete from employees where id in (:ids)")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteByLastName(String lastName) {
+        return databaseClient.sql("delete from employees where last_name = :lastName")
+                .bind("lastName", lastName)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // same counter as EmployeeRepository#incrementTableVersion, so servlet-side list ETags see reactive writes
+    public Mono<Long> incrementTableVersion() {
+        return databaseClient.sql("update employees_version set version = version + 1")
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNames(DatabaseClient.GenericExecuteSpec spec,
+                                                               String firstName, String lastName, String email) {
+        spec = firstName == null ? spec.bindNull("firstName", String.class) : spec.bind("firstName", firstName);
+        spec = lastName == null ? spec.bindNull("lastName", String.class) : spec.bind("lastName", lastName);
+        return email == null ? spec.bindNull("email", String.class) : spec.bind("email", email);
+    }
+
+    private static Employee toEmployee(Readable row) {
+        return Employee.builder()
+                .id(row.get("id", Long.class))
+                .firstName(row.get("first_name", String.class))
+                .lastName(row.get("last_name", String.class))
+                .email(row.get("email", String.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
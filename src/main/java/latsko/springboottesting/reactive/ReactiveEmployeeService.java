@@ -0,0 +1,23 @@
+package latsko.springboottesting.reactive;
+
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeePage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ReactiveEmployeeService {
+    Mono<Employee> saveEmployee(Employee employee);
+    Flux<EmployeeBatchResult> saveEmployees(List<Employee> employees);
+    Flux<Employee> getAllEmployees();
+    Mono<EmployeePage> getEmployeesPage(String afterCursor, int limit);
+    Mono<Employee> getEmployeeById(long id);
+    Mono<Employee> updateEmployee(long id, Employee updatedEmployee);
+    Mono<Boolean> patchEmployee(long id, Employee patch);
+    Mono<Void> deleteEmployee(long id);
+    Mono<Long> deleteEmployees(Collection<Long> ids);
+    Mono<Long> deleteEmployeesByLastName(String lastName);
+}
@@ -0,0 +1,203 @@
+package latsko.springboottesting.reactive;
+
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import latsko.springboottesting.exception.ResourceAlreadyExistsException;
+import latsko.springboottesting.exception.ResourceNotFoundException;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeePage;
+import latsko.springboottesting.model.EmployeeView;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@Profile("reactive")
+public class ReactiveEmployeeServiceImpl implements ReactiveEmployeeService {
+
+    // MySQL's duplicate key error; SQLState 23000 alone covers every integrity violation
+    private static final int ER_DUP_ENTRY = 1062;
+    private static final String DUPLICATE_KEY_PREFIX = " for key '";
+
+    private final ReactiveEmployeeRepository employeeRepository;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveEmployeeServiceImpl(ReactiveEmployeeRepository employeeRepository,
+                                       TransactionalOperator transactionalOperator) {
+        this.employeeRepository = employeeRepository;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    @Override
+    public Mono<Employee> saveEmployee(Employee employee) {
+        return employeeRepository.nextIds(1)
+                .flatMap(id -> {
+                    employee.setId(id);
+                    return employeeRepository.insert(employee);
+                })
+                .flatMap(saved -> employeeRepository.incrementTableVersion()
+                        .then(employeeRepository.insertChanges(List.of(saved.getId())))
+                        .thenReturn(saved))
+                .as(transactionalOperator::transactional)
+                .onErrorMap(ReactiveEmployeeServiceImpl::isDuplicateEmail, e -> new ResourceAlreadyExistsException(
+                        "Employee already exist with given email: " + employee.getEmail(), e));
+    }
+
+    @Override
+    public Flux<EmployeeBatchResult> saveEmployees(List<Employee> employees) {
+        return employeeRepository.findExistingEmails(employees.stream().map(Employee::getEmail).toList())
+                .collect(HashSet<String>::new, Set::add)
+                .flatMapMany(existingEmails -> {
+                    Set<String> batchEmails = new HashSet<>();
+                    List<EmployeeBatchResult> results = new ArrayList<>(employees.size());
+                    List<Employee> newEmployees = new ArrayList<>(employees.size());
+                    for (Employee employee : employees) {
+                        if (existingEmails.contains(employee.getEmail()) || !batchEmails.add(employee.getEmail())) {
+                            results.add(EmployeeBatchResult.conflict(employee,
+                                    "Employee already exist with given email: " + employee.getEmail()));
+                        } else {
+                            newEmployees.add(employee);
+                            results.add(EmployeeBatchResult.created(employee));
+                        }
+                    }
+                    if (newEmployees.isEmpty()) {
+                        return Flux.fromIterable(results);
+                    }
+                    // one sequence round trip for the whole chunk
+                    return employeeRepository.nextIds(newEmployees.size())
+                            .flatMapMany(first -> {
+                                for (int i = 0; i < newEmployees.size(); i++) {
+                                    newEmployees.get(i).setId(first + i);
+                                }
+                                return Flux.fromIterable(newEmployees).concatMap(employeeRepository::insert);
+                            })
+                            .then(employeeRepository.incrementTableVersion())
+                            // deferred, the ids are only set once the block is claimed
+                            .then(Mono.defer(() -> employeeRepository.insertChanges(
+                                    newEmployees.stream().map(Employee::getId).toList())))
+                            .thenMany(Flux.fromIterable(results));
+                })
+                .as(transactionalOperator::transactional)
+                .onErrorMap(ReactiveEmployeeServiceImpl::isDuplicateEmail, e -> new ResourceAlreadyExistsException(
+                        "Employee with one of the given emails was created concurrently", e));
+    }
+
+    @Override
+    public Flux<Employee> getAllEmployees() {
+        return employeeRepository.findAll();
+    }
+
+    @Override
+    public Mono<EmployeePage> getEmployeesPage(String afterCursor, int limit) {
+        return Mono.fromCallable(() -> EmployeePage.decodeCursor(afterCursor))
+                .flatMap(afterId -> {
+                    int pageSize = EmployeePage.pageSize(limit);
+                    return employeeRepository.findByIdGreaterThan(afterId, pageSize + 1)
+                            .map(EmployeeView::of)
+                            .collectList()
+                            .map(employees -> EmployeePage.of(employees, pageSize));
+                });
+    }
+
+    @Override
+    public Mono<Employee> getEmployeeById(long id) {
+        return employeeRepository.findById(id);
+    }
+
+    @Override
+    public Mono<Employee> updateEmployee(long id, Employee updatedEmployee) {
+        return recordChanges(employeeRepository.update(id, updatedEmployee.getFirstName(),
+                        updatedEmployee.getLastName(), updatedEmployee.getEmail()), List.of(id))
+                .as(transactionalOperator::transactional)
+                .onErrorMap(ReactiveEmployeeServiceImpl::isDuplicateEmail, e -> new ResourceAlreadyExistsException(
+                        "Employee already exist with given email: " + updatedEmployee.getEmail(), e))
+                .filter(updated -> updated > 0)
+                .map(updated -> {
+                    updatedEmployee.setId(id);
+                    return updatedEmployee;
+                });
+    }
+
+    @Override
+    public Mono<Boolean> patchEmployee(long id, Employee patch) {
+        return recordChanges(employeeRepository.patch(id, patch.getFirstName(), patch.getLastName(),
+                        patch.getEmail()), List.of(id))
+                .as(transactionalOperator::transactional)
+                .onErrorMap(ReactiveEmployeeServiceImpl::isDuplicateEmail, e -> new ResourceAlreadyExistsException(
+                        "Employee already exist with given email: " + patch.getEmail(), e))
+                .map(updated -> updated > 0);
+    }
+
+    @Override
+    public Mono<Void> deleteEmployee(long id) {
+        return recordDeletions(employeeRepository.deleteById(id), List.of(id))
+                .as(transactionalOperator::transactional)
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.error(new ResourceNotFoundException("Employee not found with given id: " + id))
+                        : Mono.empty());
+    }
+
+    @Override
+    public Mono<Long> deleteEmployees(Collection<Long> ids) {
+        return ids.isEmpty() ? Mono.just(0L)
+                : recordDeletions(employeeRepository.deleteByIdIn(ids), ids).as(transactionalOperator::transactional);
+    }
+
+    // the change log needs the ids; the read locks them, so the delete removes exactly these
+    @Override
+    public Mono<Long> deleteEmployeesByLastName(String lastName) {
+        return employeeRepository.findIdsByLastNameForUpdate(lastName)
+                .collectList()
+                .flatMap(ids -> ids.isEmpty() ? Mono.just(0L)
+                        : recordDeletions(employeeRepository.deleteByLastName(lastName), ids))
+                .as(transactionalOperator::transactional);
+    }
+
+    // bumps the list version after the write, and only if it changed anything; the change log is stamped right
+    // after, so the version's row lock is only held from the bump to the commit
+    private Mono<Long> recordChanges(Mono<Long> write, Collection<Long> ids) {
+        return write.flatMap(rows -> rows == 0 ? Mono.just(rows) : employeeRepository.incrementTableVersion()
+                .then(employeeRepository.stampChanges(ids))
+                // employees written outside of this service may lack a change log row
+                .flatMap(stamped -> stamped < ids.size() ? employeeRepository.insertChanges(ids) : Mono.just(stamped))
+                .thenReturn(rows));
+    }
+
+    private Mono<Long> recordDeletions(Mono<Long> write, Collection<Long> ids) {
+        return write.flatMap(rows -> rows == 0 ? Mono.just(rows) : employeeRepository.incrementTableVersion()
+                .then(employeeRepository.stampDeletions(ids))
+                .thenReturn(rows));
+    }
+
+    // the R2DBC counterpart of the constraint check on the JPA side: a duplicate key error from the driver, on the
+    // email constraint
+    private static boolean isDuplicateEmail(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof R2dbcDataIntegrityViolationException violation) {
+                return violation.getErrorCode() == ER_DUP_ENTRY
+                        && Employee.EMAIL_UNIQUE_CONSTRAINT.equals(violatedKey(violation.getMessage()));
+            }
+        }
+        return false;
+    }
+
+    // MySQL names the key in the message, qualified with the table since 8.0: "Duplicate entry 'a@b.c' for key
+    // 'employees.uk_employees_email'"; this is where Hibernate's MySQL dialect reads the constraint name from too
+    private static String violatedKey(String message) {
+        int start = message == null ? -1 : message.lastIndexOf(DUPLICATE_KEY_PREFIX);
+        int end = start == -1 ? -1 : message.indexOf('\'', start + DUPLICATE_KEY_PREFIX.length());
+        if (end == -1) {
+            return null;
+        }
+        String key = message.substring(start + DUPLICATE_KEY_PREFIX.length(), end);
+        return key.substring(key.lastIndexOf('.') + 1).toLowerCase();
+    }
+}
@@ -1,22 +1,154 @@
 package latsko.springboottesting.repository;
 
+import jakarta.persistence.QueryHint;
 import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeChange;
+import latsko.springboottesting.model.EmployeeView;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
 
+    // cached finders: results are dropped whenever Hibernate writes to the employees table, bulk JPQL included
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = Employee.FINDER_CACHE_REGION)})
     Optional<Employee> findByEmail(String email);
 
+    @Query("select e.email from Employee e where e.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // read models: rows go straight into records, without managed entities or dirty-checking snapshots
+    @Query("select new latsko.springboottesting.model.EmployeeView(e.id, e.firstName, e.lastName, e.email) " +
+            "from Employee e order by e.id")
+    List<EmployeeView> findAllViews();
+
+    // an unmanaged Employee with its version, for callers that need the ETag but not an entity
+    @Query("select new latsko.springboottesting.model.Employee(e.id, e.firstName, e.lastName, e.email, e.version) " +
+            "from Employee e where e.id = :id")
+    Optional<Employee> findDetachedById(@Param("id") long id);
+
+    // seek query for keyset pagination: walks the primary key index from the cursor onwards; derived, so the Limit
+    // is applied by the query creator, and the DTO return type selects only the projected columns
+    List<EmployeeView> findViewsByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+    @Query("select new latsko.springboottesting.model.EmployeeView(e.id, e.firstName, e.lastName, e.email) " +
+            "from Employee e where e.firstName = :firstName and e.lastName = :lastName order by e.id")
+    List<EmployeeView> findViewsByName(@Param("firstName") String firstName, @Param("lastName") String lastName);
+
+    // projected rows are fetched through a server-side cursor, must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new latsko.springboottesting.model.EmployeeView(e.id, e.firstName, e.lastName, e.email) " +
+            "from Employee e order by e.id")
+    Stream<EmployeeView> streamAllBy();
+
+    // single UPDATE statements, the affected row count tells whether the employee exists; bulk JPQL leaves
+    // @Version alone, so the version is bumped explicitly, and makes Hibernate evict the whole employees region
+    // instead of the one id, see hibernate-jcache.conf
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Employee e set e.firstName = :firstName, e.lastName = :lastName, e.email = :email, " +
+            "e.version = e.version + 1 where e.id = :id")
+    int updateEmployee(@Param("id") long id, @Param("firstName") String firstName,
+                       @Param("lastName") String lastName, @Param("email") String email);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Employee e set e.firstName = coalesce(:firstName, e.firstName), " +
+            "e.lastName = coalesce(:lastName, e.lastName), e.email = coalesce(:email, e.email), " +
+            "e.version = e.version + 1 where e.id = :id")
+    int patchEmployee(@Param("id") long id, @Param("firstName") String firstName,
+                      @Param("lastName") String lastName, @Param("email") String email);
+
+    // optimistic variants: no lock is taken up front, the row is only changed while still at the given version
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Employee e set e.firstName = :firstName, e.lastName = :lastName, e.email = :email, " +
+            "e.version = e.version + 1 where e.id = :id and e.version = :version")
+    int updateEmployeeIfVersion(@Param("id") long id, @Param("version") long version,
+                                @Param("firstName") String firstName, @Param("lastName") String lastName,
+                                @Param("email") String email);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Employee e set e.firstName = coalesce(:firstName, e.firstName), " +
+            "e.lastName = coalesce(:lastName, e.lastName), e.email = coalesce(:email, e.email), " +
+            "e.version = e.version + 1 where e.id = :id and e.version = :version")
+    int patchEmployeeIfVersion(@Param("id") long id, @Param("version") long version,
+                               @Param("firstName") String firstName, @Param("lastName") String lastName,
+                               @Param("email") String email);
+
+    // version of the whole table, bumped last in every write transaction so its row lock is held briefly; pending
+    // entity changes are flushed before, so their row locks are never taken while it is held
+    @Query("select v.version from EmployeesVersion v")
+    long findTableVersion();
+
+    @Modifying(flushAutomatically = true)
+    @Query("update EmployeesVersion v set v.version = v.version + 1")
+    int incrementTableVersion();
+
+    // change log for the feed, stamped with the table version right after it was bumped; the version's row lock is
+    // held until commit, so stamps are committed in the order of their values. Employees get their row when created
+    @Modifying(flushAutomatically = true)
+    @Query("insert into EmployeeChangeLog (employeeId, changeSeq, deleted) select e.id, v.version, false " +
+            "from Employee e, EmployeesVersion v where e.id in :ids " +
+            "and not exists (select c.employeeId from EmployeeChangeLog c where c.employeeId = e.id)")
+    int insertChanges(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update EmployeeChangeLog c set c.changeSeq = (select v.version from EmployeesVersion v) " +
+            "where c.employeeId in :ids and c.deleted = false")
+    int stampChanges(@Param("ids") Collection<Long> ids);
+
+    // tombstones: the rows are already gone, their change log rows stay and are marked
+    @Modifying(flushAutomatically = true)
+    @Query("update EmployeeChangeLog c set c.changeSeq = (select v.version from EmployeesVersion v), " +
+            "c.deleted = true where c.employeeId in :ids and c.deleted = false")
+    int stampDeletions(@Param("ids") Collection<Long> ids);
+
+    // seek query for the change feed, walks the (change_seq, employee_id) index from the token onwards; tombstones
+    // come without names
+    @Query("select new latsko.springboottesting.model.EmployeeChange(c.changeSeq, c.employeeId, e.firstName, " +
+            "e.lastName, e.email, c.deleted) from EmployeeChangeLog c left join Employee e on e.id = c.employeeId " +
+            "where c.changeSeq > :changeSeq or (c.changeSeq = :changeSeq and c.employeeId > :id) " +
+            "order by c.changeSeq, c.employeeId limit :limit")
+    List<EmployeeChange> findChangesAfter(@Param("changeSeq") long changeSeq, @Param("id") long id,
+                                          @Param("limit") int limit);
+
+    // locks the employees with the last name and the gap around them, so a delete by last name removes exactly
+    // these and none created meanwhile
+    @Query(value = "select e.id from employees e where e.last_name = :lastName for update", nativeQuery = true)
+    List<Long> findIdsByLastNameForUpdate(@Param("lastName") String lastName);
+
+    // deletes without loading the entities first, unlike deleteById
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Employee e where e.id = :id")
+    int deleteEmployeeById(@Param("id") long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Employee e where e.id in :ids")
+    int deleteEmployeesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Employee e where e.lastName = :lastName")
+    int deleteEmployeesByLastName(@Param("lastName") String lastName);
+
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = Employee.FINDER_CACHE_REGION)})
     @Query("select e from Employee e where e.firstName = ?1 and e.lastName = ?2")
     Employee findByJPQL(String firstName, String lastName);
 
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = Employee.FINDER_CACHE_REGION)})
     @Query("select e from Employee e where e.firstName =:firstName and e.lastName =:lastName")
     Employee findByJPQLNamedParams(@Param("firstName") String firstName, @Param("lastName") String lastName);
 
+    // native finders are not cached: Hibernate cannot tell which tables they read, so it could not invalidate them
     @Query(value = "select * from employees e where e.first_name =?1 and e.last_name =?2", nativeQuery = true)
     Employee findByNativeSQL(String firstName, String lastName);
 
@@ -0,0 +1,407 @@
+package latsko.springboottesting.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import latsko.springboottesting.exception.SearchIndexNotReadyException;
+import latsko.springboottesting.model.EmployeeView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Typeahead index over first names, last names and email local parts. Lookups run lock-free against an
+ * immutable {@link SearchSegment} plus a small overlay of the writes made since it was built; once the
+ * overlay reaches the rebuild threshold it is folded into a new segment in the background.
+ */
+@Component
+public class EmployeeSearchIndex implements MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeSearchIndex.class);
+
+    private final int rebuildThreshold;
+    private final int minPrefixLength;
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("employee-search-rebuild").daemon().factory());
+    // one rebuild at a time, whether the initial load or a compaction
+    private final Object rebuildLock = new Object();
+
+    private volatile State state = new State(SearchSegment.EMPTY, new Overlay(), new Overlay(), false);
+    // guarded by this
+    private boolean compactionScheduled;
+
+    public EmployeeSearchIndex(@Value("${employees.search.rebuild-threshold:10000}") int rebuildThreshold,
+                               @Value("${employees.search.min-prefix-length:2}") int minPrefixLength) {
+        this.rebuildThreshold = rebuildThreshold;
+        this.minPrefixLength = minPrefixLength;
+    }
+
+    /**
+     * Up to {@code limit} employees matching every word of the query as a prefix, best first. Until the
+     * initial load has finished there is nothing meaningful to return.
+     */
+    public List<EmployeeView> search(String query, int limit) {
+        State current = state;
+        if (!current.ready()) {
+            throw new SearchIndexNotReadyException("Employee search index is still loading");
+        }
+        // tokenized like an email, so a query typed up to the domain still matches the local part
+        String[] tokens = SearchSegment.terms(query, SearchSegment.EMAIL).toArray(String[]::new);
+        // single letters would walk a large part of the index on every keystroke
+        boolean selective = false;
+        for (String token : tokens) {
+            selective |= token.length() >= minPrefixLength;
+        }
+        if (!selective || limit <= 0) {
+            return List.of();
+        }
+
+        TopHits hits = new TopHits(limit);
+        SearchSegment segment = current.segment();
+        Overlay frozen = current.frozen();
+        Overlay active = current.active();
+        boolean overlaid = !frozen.isEmpty() || !active.isEmpty();
+        segment.collect(tokens, hits, overlaid
+                ? slot -> frozen.hides(segment, slot) || active.hides(segment, slot)
+                : null);
+        for (OverlayEntry entry : frozen.upserts.values()) {
+            if (!active.hides(entry.employee())) {
+                entry.offer(tokens, hits);
+            }
+        }
+        for (OverlayEntry entry : active.upserts.values()) {
+            entry.offer(tokens, hits);
+        }
+        return hits.toList(segment);
+    }
+
+    /**
+     * Replaces the index with the employees the scan produces, which must come in ascending id order. Writes
+     * made while the scan runs are kept in the overlay, so the scan does not need to see them.
+     */
+    public void load(Consumer<Consumer<EmployeeView>> scan) {
+        rebuild(frozen -> scan);
+    }
+
+    public void loadInBackground(Consumer<Consumer<EmployeeView>> scan) {
+        rebuilder.execute(() -> {
+            try {
+                load(scan);
+            } catch (RuntimeException e) {
+                log.error("Loading the employee search index failed", e);
+            }
+        });
+    }
+
+    // the write hooks apply once the surrounding transaction has committed, and never on a rollback
+
+    public void indexEmployee(EmployeeView employee) {
+        afterCommit(() -> upsert(employee));
+    }
+
+    // null fields keep their indexed value, like the PATCH endpoint
+    public void indexPatch(long id, String firstName, String lastName, String email) {
+        afterCommit(() -> patch(id, firstName, lastName, email));
+    }
+
+    public void removeEmployee(long id) {
+        afterCommit(() -> remove(id));
+    }
+
+    public void removeEmployeesByLastName(String lastName) {
+        afterCommit(() -> removeByLastName(lastName));
+    }
+
+    public int size() {
+        return state.segment().size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("employees.search.documents", this, EmployeeSearchIndex::size)
+                .description("Employees in the search index segment")
+                .register(registry);
+        Gauge.builder("employees.search.pending.writes", this, index -> index.state.pendingWrites())
+                .description("Writes not yet folded into the search index segment")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        rebuilder.shutdownNow();
+    }
+
+    private synchronized void upsert(EmployeeView employee) {
+        Overlay active = state.active();
+        active.patches.remove(employee.id());
+        active.deletes.remove(employee.id());
+        active.upserts.put(employee.id(), OverlayEntry.of(employee));
+        scheduleCompaction();
+    }
+
+    private synchronized void patch(long id, String firstName, String lastName, String email) {
+        EmployeeView patch = new EmployeeView(id, firstName, lastName, email);
+        EmployeeView current = state.find(id);
+        if (current != null) {
+            upsert(patched(current, patch));
+        } else if (!state.ready()) {
+            // the initial load may not have reached the employee yet, the patch waits for it
+            state.active().patches.merge(id, patch, EmployeeSearchIndex::patched);
+        }
+    }
+
+    private synchronized void remove(long id) {
+        Overlay active = state.active();
+        active.patches.remove(id);
+        active.upserts.remove(id);
+        active.deletes.add(id);
+        scheduleCompaction();
+    }
+
+    private synchronized void removeByLastName(String lastName) {
+        Overlay active = state.active();
+        active.upserts.values().removeIf(entry -> lastName.equalsIgnoreCase(entry.employee().lastName()));
+        active.deletedLastNames.add(lastName);
+        scheduleCompaction();
+    }
+
+    private void scheduleCompaction() {
+        if (!compactionScheduled && state.ready() && state.active().size() >= rebuildThreshold) {
+            compactionScheduled = true;
+            rebuilder.execute(() -> rebuild(EmployeeSearchIndex::merged));
+        }
+    }
+
+    /**
+     * Freezes the overlay, builds a new segment from the source while new writes collect in a fresh overlay,
+     * then swaps the segment in and drops the frozen overlay.
+     */
+    private void rebuild(Function<State, Consumer<Consumer<EmployeeView>>> source) {
+        synchronized (rebuildLock) {
+            State frozen;
+            synchronized (this) {
+                compactionScheduled = false;
+                frozen = new State(state.segment(), state.frozen().merge(state.active()), new Overlay(),
+                        state.ready());
+                state = frozen;
+            }
+            SearchSegment.Builder builder = new SearchSegment.Builder();
+            source.apply(frozen).accept(builder::add);
+            SearchSegment segment = builder.build();
+            synchronized (this) {
+                state = new State(segment, new Overlay(), state.active(), true);
+                applyPendingPatches();
+                scheduleCompaction();
+            }
+        }
+    }
+
+    // patches made during the initial load for employees it had not reached yet, whether or not the scan read
+    // them before or after the patch, applying it again gives the same employee
+    private void applyPendingPatches() {
+        List<EmployeeView> patches = List.copyOf(state.active().patches.values());
+        state.active().patches.clear();
+        for (EmployeeView patch : patches) {
+            EmployeeView current = state.find(patch.id());
+            if (current != null) {
+                upsert(patched(current, patch));
+            }
+        }
+    }
+
+    // null fields of the patch keep the employee's value
+    private static EmployeeView patched(EmployeeView employee, EmployeeView patch) {
+        return new EmployeeView(employee.id(),
+                patch.firstName() != null ? patch.firstName() : employee.firstName(),
+                patch.lastName() != null ? patch.lastName() : employee.lastName(),
+                patch.email() != null ? patch.email() : employee.email());
+    }
+
+    // the frozen segment with the frozen overlay applied, in ascending id order
+    private static Consumer<Consumer<EmployeeView>> merged(State frozen) {
+        return sink -> {
+            SearchSegment segment = frozen.segment();
+            Overlay overlay = frozen.frozen();
+            List<EmployeeView> upserts = overlay.upserts.values().stream()
+                    .map(OverlayEntry::employee)
+                    .sorted(Comparator.comparingLong(EmployeeView::id))
+                    .toList();
+            int next = 0;
+            for (int slot = 0; slot < segment.size(); slot++) {
+                long id = segment.id(slot);
+                while (next < upserts.size() && upserts.get(next).id() < id) {
+                    sink.accept(upserts.get(next++));
+                }
+                if (next < upserts.size() && upserts.get(next).id() == id) {
+                    sink.accept(upserts.get(next++));
+                } else if (!overlay.hides(segment, slot)) {
+                    sink.accept(segment.view(slot));
+                }
+            }
+            while (next < upserts.size()) {
+                sink.accept(upserts.get(next++));
+            }
+        };
+    }
+
+    private static void afterCommit(Runnable write) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write.run();
+                }
+            });
+        } else {
+            write.run();
+        }
+    }
+
+    /**
+     * The segment lookups run against, the overlay frozen into the segment being built, if any, and the
+     * overlay taking new writes. Later ones win.
+     */
+    private record State(SearchSegment segment, Overlay frozen, Overlay active, boolean ready) {
+
+        EmployeeView find(long id) {
+            if (active.deletes.contains(id)) {
+                return null;
+            }
+            OverlayEntry entry = active.upserts.getOrDefault(id, frozen.upserts.get(id));
+            if (entry != null) {
+                return active.hides(entry.employee()) ? null : entry.employee();
+            }
+            int slot = segment.slotOf(id);
+            return slot >= 0 && !frozen.hides(segment, slot) && !active.hides(segment, slot)
+                    ? segment.view(slot)
+                    : null;
+        }
+
+        int pendingWrites() {
+            return frozen.size() + active.size();
+        }
+    }
+
+    private static final class Overlay {
+
+        final Map<Long, OverlayEntry> upserts = new ConcurrentHashMap<>();
+        final Set<Long> deletes = ConcurrentHashMap.newKeySet();
+        final Set<String> deletedLastNames = ConcurrentHashMap.newKeySet();
+        // partial updates of employees not in the index yet, null fields are not patched
+        final Map<Long, EmployeeView> patches = new ConcurrentHashMap<>();
+
+        boolean isEmpty() {
+            return upserts.isEmpty() && deletes.isEmpty() && deletedLastNames.isEmpty() && patches.isEmpty();
+        }
+
+        int size() {
+            return upserts.size() + deletes.size() + deletedLastNames.size() + patches.size();
+        }
+
+        // whether this overlay replaces or removes an employee of an older segment
+        boolean hides(SearchSegment segment, int slot) {
+            long id = segment.id(slot);
+            return upserts.containsKey(id) || deletes.contains(id)
+                    || (!deletedLastNames.isEmpty() && deletedLastName(segment.lastName(slot)));
+        }
+
+        // whether this overlay removes an employee of an older overlay
+        boolean hides(EmployeeView employee) {
+            return upserts.containsKey(employee.id()) || deletes.contains(employee.id())
+                    || (!deletedLastNames.isEmpty() && deletedLastName(employee.lastName()));
+        }
+
+        // MySQL compares last names case-insensitively
+        private boolean deletedLastName(String lastName) {
+            for (String deleted : deletedLastNames) {
+                if (deleted.equalsIgnoreCase(lastName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // this overlay with a newer one applied on top
+        Overlay merge(Overlay newer) {
+            if (isEmpty()) {
+                return newer;
+            }
+            Overlay merged = new Overlay();
+            merged.deletedLastNames.addAll(deletedLastNames);
+            merged.deletedLastNames.addAll(newer.deletedLastNames);
+            upserts.values().stream()
+                    .filter(entry -> !newer.hides(entry.employee()))
+                    .forEach(entry -> merged.upserts.put(entry.employee().id(), entry));
+            merged.upserts.putAll(newer.upserts);
+            merged.deletes.addAll(deletes);
+            merged.deletes.addAll(newer.deletes);
+            merged.deletes.removeAll(newer.upserts.keySet());
+            patches.values().stream()
+                    .filter(patch -> !newer.upserts.containsKey(patch.id()) && !newer.deletes.contains(patch.id()))
+                    .forEach(patch -> merged.patches.put(patch.id(), patch));
+            newer.patches.values().forEach(patch -> merged.patches.merge(patch.id(), patch, EmployeeSearchIndex::patched));
+            return merged;
+        }
+    }
+
+    // a written employee with its terms, scored by a linear scan since the overlay stays small
+    private record OverlayEntry(EmployeeView employee, String[] terms, byte[] fields) {
+
+        static OverlayEntry of(EmployeeView employee) {
+            List<String> terms = new ArrayList<>();
+            List<Byte> fields = new ArrayList<>();
+            add(terms, fields, employee.firstName(), SearchSegment.FIRST_NAME);
+            add(terms, fields, employee.lastName(), SearchSegment.LAST_NAME);
+            add(terms, fields, employee.email(), SearchSegment.EMAIL);
+            byte[] fieldArray = new byte[fields.size()];
+            for (int i = 0; i < fieldArray.length; i++) {
+                fieldArray[i] = fields.get(i);
+            }
+            return new OverlayEntry(employee, terms.toArray(String[]::new), fieldArray);
+        }
+
+        private static void add(List<String> terms, List<Byte> fields, String value, byte field) {
+            for (String term : SearchSegment.terms(value, field)) {
+                int existing = terms.indexOf(term);
+                if (existing >= 0) {
+                    fields.set(existing, (byte) (fields.get(existing) | field));
+                } else {
+                    terms.add(term);
+                    fields.add(field);
+                }
+            }
+        }
+
+        void offer(String[] tokens, TopHits hits) {
+            int total = 0;
+            for (String token : tokens) {
+                int best = 0;
+                for (int k = 0; k < terms.length; k++) {
+                    if (terms[k].startsWith(token)) {
+                        best = Math.max(best, SearchSegment.score(fields[k], terms[k].length() == token.length()));
+                    }
+                }
+                if (best == 0) {
+                    return;
+                }
+                total += best;
+            }
+            hits.offer(total, employee.id(), -1, employee);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package latsko.springboottesting.search;
+
+import latsko.springboottesting.datasource.ReplicaRouting;
+import latsko.springboottesting.model.EmployeeView;
+import latsko.springboottesting.repository.EmployeeRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+/**
+ * Fills the search index from one streaming scan of the table once the application is up. The scan runs in
+ * the background, so a large table does not hold back startup; searches answer 503 until it is done.
+ */
+@Component
+public class EmployeeSearchIndexLoader {
+
+    private final EmployeeSearchIndex employeeSearchIndex;
+    private final EmployeeRepository employeeRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public EmployeeSearchIndexLoader(EmployeeSearchIndex employeeSearchIndex, EmployeeRepository employeeRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.employeeSearchIndex = employeeSearchIndex;
+        this.employeeRepository = employeeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        // streamAllBy reads through a server-side cursor in id order, the order the segment is built in; on the
+        // primary, since writes committed before the load started are only ever seen by the scan
+        employeeSearchIndex.loadInBackground(sink -> {
+            try (ReplicaRouting.Pin pin = ReplicaRouting.pinToPrimary()) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<EmployeeView> employees = employeeRepository.streamAllBy()) {
+                        employees.forEach(sink);
+                    }
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,382 @@
+package latsko.springboottesting.search;
+
+import latsko.springboottesting.model.EmployeeView;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable prefix index over first names, last names and email local parts, held in a handful of primitive
+ * arrays: the employees' text is one UTF-8 byte arena, the sorted terms one char arena, and the postings and
+ * the per-employee term lists plain int arrays. A prefix maps to a contiguous range of term ordinals, so
+ * matching a term against a query token is an integer range check.
+ */
+final class SearchSegment {
+
+    static final byte FIRST_NAME = 1;
+    static final byte LAST_NAME = 2;
+    static final byte EMAIL = 4;
+
+    static final SearchSegment EMPTY = new Builder().build();
+
+    // employees by slot, ascending by id
+    private final long[] ids;
+    // first name, last name and email of every employee, back to back
+    private final byte[] text;
+    private final int[] textOffsets;
+
+    // lower-cased terms in ascending order, with every field they occur in
+    private final char[] termChars;
+    private final int[] termOffsets;
+    private final byte[] termFields;
+
+    // slots containing each term, ascending
+    private final int[] postingOffsets;
+    private final int[] postings;
+
+    // term ordinals of each slot, ascending, with the fields they occur in
+    private final int[] slotTermOffsets;
+    private final int[] slotTerms;
+    private final byte[] slotTermFields;
+
+    private SearchSegment(long[] ids, byte[] text, int[] textOffsets, char[] termChars, int[] termOffsets,
+                          byte[] termFields, int[] postingOffsets, int[] postings,
+                          int[] slotTermOffsets, int[] slotTerms, byte[] slotTermFields) {
+        this.ids = ids;
+        this.text = text;
+        this.textOffsets = textOffsets;
+        this.termChars = termChars;
+        this.termOffsets = termOffsets;
+        this.termFields = termFields;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+        this.slotTermOffsets = slotTermOffsets;
+        this.slotTerms = slotTerms;
+        this.slotTermFields = slotTermFields;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    long id(int slot) {
+        return ids[slot];
+    }
+
+    // slot of the employee, or a negative value when it is not in this segment
+    int slotOf(long id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    EmployeeView view(int slot) {
+        return new EmployeeView(ids[slot], field(slot, 0), field(slot, 1), field(slot, 2));
+    }
+
+    String lastName(int slot) {
+        return field(slot, 1);
+    }
+
+    /**
+     * Offers every slot that matches all query tokens to the hits, skipping slots the filter rejects. Only
+     * the postings of the most selective token are walked, the other tokens are checked on the slot's own
+     * term list. Postings are in id order, so once the hits are full a term stops at the first slot that
+     * could at best tie with the weakest hit; on a short prefix that leaves most postings unread.
+     */
+    void collect(String[] tokens, TopHits hits, IntPredicate hidden) {
+        int[] from = new int[tokens.length];
+        int[] to = new int[tokens.length];
+        int driver = -1;
+        int driverPostings = Integer.MAX_VALUE;
+        for (int i = 0; i < tokens.length; i++) {
+            from[i] = lowerBound(tokens[i], false);
+            to[i] = lowerBound(tokens[i], true);
+            int count = postingOffsets[to[i]] - postingOffsets[from[i]];
+            if (count == 0) {
+                return;
+            }
+            if (count < driverPostings) {
+                driver = i;
+                driverPostings = count;
+            }
+        }
+        // the most the other tokens can add to a slot's score
+        int otherTokensBound = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (i != driver) {
+                int best = 0;
+                for (int term = from[i]; term < to[i] && best < score(FIRST_NAME, true); term++) {
+                    best = Math.max(best, score(termFields[term], termLength(term) == tokens[i].length()));
+                }
+                otherTokensBound += best;
+            }
+        }
+        for (int term = from[driver]; term < to[driver]; term++) {
+            int bound = score(termFields[term], termLength(term) == tokens[driver].length()) + otherTokensBound;
+            if (hits.isFull() && bound < hits.weakestScore()) {
+                continue;
+            }
+            for (int p = postingOffsets[term]; p < postingOffsets[term + 1]; p++) {
+                int slot = postings[p];
+                if (hits.isFull() && bound == hits.weakestScore() && ids[slot] > hits.weakestId()) {
+                    break;
+                }
+                // a slot with several terms under the prefix is scored once, at the first of them
+                if (hasTermIn(slot, from[driver], term)) {
+                    continue;
+                }
+                int score = score(slot, tokens, from, to);
+                if (score > 0 && (hidden == null || !hidden.test(slot))) {
+                    hits.offer(score, ids[slot], slot, null);
+                }
+            }
+        }
+    }
+
+    private int score(int slot, String[] tokens, int[] from, int[] to) {
+        int total = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            int best = 0;
+            for (int k = slotTermOffsets[slot]; k < slotTermOffsets[slot + 1]; k++) {
+                int term = slotTerms[k];
+                if (term >= from[i] && term < to[i]) {
+                    boolean exact = termLength(term) == tokens[i].length();
+                    best = Math.max(best, score(slotTermFields[k], exact));
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    // names outrank email local parts, whole-word matches outrank prefix matches
+    static int score(byte fields, boolean exact) {
+        int weight = (fields & (FIRST_NAME | LAST_NAME)) != 0 ? 2 : 1;
+        return exact ? weight * 2 : weight;
+    }
+
+    private int termLength(int term) {
+        return termOffsets[term + 1] - termOffsets[term];
+    }
+
+    private boolean hasTermIn(int slot, int fromTerm, int toTerm) {
+        for (int k = slotTermOffsets[slot]; k < slotTermOffsets[slot + 1]; k++) {
+            int term = slotTerms[k];
+            if (term >= toTerm) {
+                return false;
+            }
+            if (term >= fromTerm) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // first term ordinal not below the prefix, or with upper set, the first one after all terms starting with it
+    private int lowerBound(String prefix, boolean upper) {
+        int low = 0;
+        int high = termOffsets.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int comparison = comparePrefix(mid, prefix);
+            if (comparison < 0 || (upper && comparison == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // compares the term with the prefix, treating every term that starts with the prefix as equal to it
+    private int comparePrefix(int term, String prefix) {
+        int start = termOffsets[term];
+        int length = termOffsets[term + 1] - start;
+        int common = Math.min(length, prefix.length());
+        for (int i = 0; i < common; i++) {
+            int difference = termChars[start + i] - prefix.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length < prefix.length() ? -1 : 0;
+    }
+
+    private String field(int slot, int field) {
+        int start = textOffsets[slot * 3 + field];
+        return new String(text, start, textOffsets[slot * 3 + field + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lower-cased runs of letters and digits. Only the local part of an email is indexed, every employee
+     * shares the handful of domains.
+     */
+    static List<String> terms(String value, byte field) {
+        List<String> terms = new ArrayList<>(4);
+        if (value == null) {
+            return terms;
+        }
+        String text = value;
+        if (field == EMAIL) {
+            int at = value.indexOf('@');
+            text = at >= 0 ? value.substring(0, at) : value;
+        }
+        text = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Collects employees in ascending id order. The term dictionary is a hash map while building, it is
+     * sorted into the char arena once by {@link #build()}.
+     */
+    static final class Builder {
+
+        private final Map<String, Integer> termIds = new HashMap<>();
+        private final List<String> terms = new ArrayList<>();
+
+        private long[] ids = new long[1024];
+        private int size;
+        private byte[] text = new byte[32 * 1024];
+        private int textLength;
+        private int[] textOffsets = new int[3 * 1024 + 1];
+
+        private int[] slotTermOffsets = new int[1024 + 1];
+        private int[] slotTerms = new int[4 * 1024];
+        private byte[] slotTermFields = new byte[4 * 1024];
+        private int slotTermCount;
+
+        void add(EmployeeView employee) {
+            if (size > 0 && employee.id() <= ids[size - 1]) {
+                throw new IllegalArgumentException("Employees must be added in ascending id order, got "
+                        + employee.id() + " after " + ids[size - 1]);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                textOffsets = Arrays.copyOf(textOffsets, size * 2 * 3 + 1);
+                slotTermOffsets = Arrays.copyOf(slotTermOffsets, size * 2 + 1);
+            }
+            ids[size] = employee.id();
+            appendText(size * 3, employee.firstName());
+            appendText(size * 3 + 1, employee.lastName());
+            appendText(size * 3 + 2, employee.email());
+
+            int slotStart = slotTermCount;
+            addTerms(employee.firstName(), FIRST_NAME, slotStart);
+            addTerms(employee.lastName(), LAST_NAME, slotStart);
+            addTerms(employee.email(), EMAIL, slotStart);
+            size++;
+            slotTermOffsets[size] = slotTermCount;
+        }
+
+        SearchSegment build() {
+            String[] sorted = terms.toArray(String[]::new);
+            Arrays.sort(sorted);
+            int termCount = sorted.length;
+
+            int[] ordinalOf = new int[termCount];
+            int[] termOffsets = new int[termCount + 1];
+            for (int ordinal = 0; ordinal < termCount; ordinal++) {
+                ordinalOf[termIds.get(sorted[ordinal])] = ordinal;
+                termOffsets[ordinal + 1] = termOffsets[ordinal] + sorted[ordinal].length();
+            }
+            char[] termChars = new char[termOffsets[termCount]];
+            for (int ordinal = 0; ordinal < termCount; ordinal++) {
+                sorted[ordinal].getChars(0, sorted[ordinal].length(), termChars, termOffsets[ordinal]);
+            }
+
+            byte[] termFields = new byte[termCount];
+            int[] postingOffsets = new int[termCount + 1];
+            for (int slot = 0; slot < size; slot++) {
+                for (int k = slotTermOffsets[slot]; k < slotTermOffsets[slot + 1]; k++) {
+                    slotTerms[k] = ordinalOf[slotTerms[k]];
+                    termFields[slotTerms[k]] |= slotTermFields[k];
+                    postingOffsets[slotTerms[k] + 1]++;
+                }
+                sortSlotTerms(slotTermOffsets[slot], slotTermOffsets[slot + 1]);
+            }
+            for (int term = 0; term < termCount; term++) {
+                postingOffsets[term + 1] += postingOffsets[term];
+            }
+            int[] postings = new int[slotTermCount];
+            int[] next = Arrays.copyOf(postingOffsets, termCount);
+            for (int slot = 0; slot < size; slot++) {
+                for (int k = slotTermOffsets[slot]; k < slotTermOffsets[slot + 1]; k++) {
+                    postings[next[slotTerms[k]]++] = slot;
+                }
+            }
+
+            return new SearchSegment(Arrays.copyOf(ids, size), Arrays.copyOf(text, textLength),
+                    Arrays.copyOf(textOffsets, size * 3 + 1), termChars, termOffsets, termFields, postingOffsets, postings,
+                    Arrays.copyOf(slotTermOffsets, size + 1), Arrays.copyOf(slotTerms, slotTermCount),
+                    Arrays.copyOf(slotTermFields, slotTermCount));
+        }
+
+        private void appendText(int field, String value) {
+            byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            if (textLength + bytes.length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + bytes.length));
+            }
+            System.arraycopy(bytes, 0, text, textLength, bytes.length);
+            textLength += bytes.length;
+            textOffsets[field + 1] = textLength;
+        }
+
+        private void addTerms(String value, byte field, int slotStart) {
+            nextTerm:
+            for (String term : terms(value, field)) {
+                int termId = termIds.computeIfAbsent(term, key -> {
+                    terms.add(key);
+                    return terms.size() - 1;
+                });
+                // a term in several fields of one employee is stored once, with all its fields
+                for (int k = slotStart; k < slotTermCount; k++) {
+                    if (slotTerms[k] == termId) {
+                        slotTermFields[k] |= field;
+                        continue nextTerm;
+                    }
+                }
+                if (slotTermCount == slotTerms.length) {
+                    slotTerms = Arrays.copyOf(slotTerms, slotTermCount * 2);
+                    slotTermFields = Arrays.copyOf(slotTermFields, slotTermCount * 2);
+                }
+                slotTerms[slotTermCount] = termId;
+                slotTermFields[slotTermCount] = field;
+                slotTermCount++;
+            }
+        }
+
+        // insertion sort, an employee has a handful of terms
+        private void sortSlotTerms(int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                int term = slotTerms[i];
+                byte fields = slotTermFields[i];
+                int j = i - 1;
+                while (j >= from && slotTerms[j] > term) {
+                    slotTerms[j + 1] = slotTerms[j];
+                    slotTermFields[j + 1] = slotTermFields[j];
+                    j--;
+                }
+                slotTerms[j + 1] = term;
+                slotTermFields[j + 1] = fields;
+            }
+        }
+    }
+}
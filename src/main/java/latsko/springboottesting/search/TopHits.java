@@ -0,0 +1,111 @@
+package latsko.springboottesting.search;
+
+import latsko.springboottesting.model.EmployeeView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The best {@code limit} matches seen so far, in a fixed-size heap with the weakest match at the root.
+ * Higher scores win, ties go to the lower id. Segment matches are kept as slots and only turned into
+ * views for the final result.
+ */
+final class TopHits {
+
+    private final int[] scores;
+    private final long[] ids;
+    private final int[] slots;
+    private final EmployeeView[] views;
+    private int size;
+
+    TopHits(int limit) {
+        scores = new int[limit];
+        ids = new long[limit];
+        slots = new int[limit];
+        views = new EmployeeView[limit];
+    }
+
+    void offer(int score, long id, int slot, EmployeeView view) {
+        if (size < scores.length) {
+            set(size, score, id, slot, view);
+            siftUp(size++);
+        } else if (size > 0 && isWeaker(scores[0], ids[0], score, id)) {
+            set(0, score, id, slot, view);
+            siftDown(0);
+        }
+    }
+
+    boolean isFull() {
+        return size == scores.length;
+    }
+
+    int weakestScore() {
+        return scores[0];
+    }
+
+    long weakestId() {
+        return ids[0];
+    }
+
+    List<EmployeeView> toList(SearchSegment segment) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> isWeaker(scores[a], ids[a], scores[b], ids[b]) ? 1
+                : isWeaker(scores[b], ids[b], scores[a], ids[a]) ? -1 : 0);
+        List<EmployeeView> result = new ArrayList<>(size);
+        for (int i : order) {
+            result.add(views[i] != null ? views[i] : segment.view(slots[i]));
+        }
+        return result;
+    }
+
+    private static boolean isWeaker(int score, long id, int otherScore, long otherId) {
+        return score < otherScore || (score == otherScore && id > otherId);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!isWeaker(scores[index], ids[index], scores[parent], ids[parent])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int weakest = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (isWeaker(scores[child], ids[child], scores[weakest], ids[weakest])) {
+                    weakest = child;
+                }
+            }
+            if (weakest == index) {
+                return;
+            }
+            swap(index, weakest);
+            index = weakest;
+        }
+    }
+
+    private void set(int index, int score, long id, int slot, EmployeeView view) {
+        scores[index] = score;
+        ids[index] = id;
+        slots[index] = slot;
+        views[index] = view;
+    }
+
+    private void swap(int a, int b) {
+        int score = scores[a];
+        long id = ids[a];
+        int slot = slots[a];
+        EmployeeView view = views[a];
+        set(a, scores[b], ids[b], slots[b], views[b]);
+        set(b, score, id, slot, view);
+    }
+}
@@ -1,14 +1,35 @@
 package latsko.springboottesting.service;
 
 import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeeChanges;
+import latsko.springboottesting.model.EmployeePage;
+import latsko.springboottesting.model.EmployeeView;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
 
 public interface EmployeeService {
     Employee saveEmployee(Employee employee);
-    List<Employee> getAllEmployees();
+    List<EmployeeBatchResult> saveEmployees(List<Employee> employees);
+    List<EmployeeView> getAllEmployees();
+    List<EmployeeView> getEmployeesByName(String firstName, String lastName);
+    List<EmployeeView> searchEmployees(String query, int limit);
+    EmployeePage getEmployeesPage(String afterCursor, int limit);
+    void exportEmployees(Consumer<EmployeeView> consumer);
+    EmployeeChanges getChanges(String sinceToken, int limit);
+    <T> T getIfModified(LongPredicate notModified, Supplier<T> reader);
     Optional<Employee> getEmployeeById(long id);
     Employee updateEmployee(Employee updatedEmployee);
+    Optional<Employee> updateEmployee(long id, Employee updatedEmployee);
+    Optional<Employee> updateEmployee(long id, Employee updatedEmployee, long expectedVersion);
+    boolean patchEmployee(long id, Employee patch);
+    boolean patchEmployee(long id, Employee patch, long expectedVersion);
     void deleteEmployee(long id);
+    int deleteEmployees(Collection<Long> ids);
+    int deleteEmployeesByLastName(String lastName);
 }
@@ -1,50 +1,350 @@
 package latsko.springboottesting.service.impl;
 
+import latsko.springboottesting.cache.EmployeeCache;
+import latsko.springboottesting.cache.EmployeeResponseCache;
+import latsko.springboottesting.datasource.ReplicaRouting;
+import latsko.springboottesting.exception.ResourceAlreadyExistsException;
 import latsko.springboottesting.exception.ResourceNotFoundException;
+import latsko.springboottesting.exception.VersionMismatchException;
 import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeeChange;
+import latsko.springboottesting.model.EmployeeChanges;
+import latsko.springboottesting.model.EmployeePage;
+import latsko.springboottesting.model.EmployeeView;
 import latsko.springboottesting.repository.EmployeeRepository;
+import latsko.springboottesting.search.EmployeeSearchIndex;
 import latsko.springboottesting.service.EmployeeService;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class EmployeeServiceImpl implements EmployeeService {
 
     private final EmployeeRepository employeeRepository;
+    private final EmployeeCache employeeCache;
+    private final EmployeeSearchIndex employeeSearchIndex;
+    private final EmployeeResponseCache responseCache;
 
-    public EmployeeServiceImpl(EmployeeRepository employeeRepository) {
+    public EmployeeServiceImpl(EmployeeRepository employeeRepository, EmployeeCache employeeCache,
+                               EmployeeSearchIndex employeeSearchIndex, EmployeeResponseCache responseCache) {
         this.employeeRepository = employeeRepository;
+        this.employeeCache = employeeCache;
+        this.employeeSearchIndex = employeeSearchIndex;
+        this.responseCache = responseCache;
     }
 
     @Override
+    @Transactional
     public Employee saveEmployee(Employee employee) {
 
-        Optional<Employee> savedEmployee = employeeRepository.findByEmail(employee.getEmail());
-        if(savedEmployee.isPresent()){
-            throw new ResourceNotFoundException("Employee already exist with given email: " + employee.getEmail());
+        // a single INSERT, the unique index on email rejects duplicates even under concurrent creates
+        Employee createdEmployee;
+        try {
+            createdEmployee = employeeRepository.saveAndFlush(employee);
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateEmail(e, "Employee already exist with given email: " + employee.getEmail());
         }
-        return employeeRepository.save(employee);
+        employeeRepository.incrementTableVersion();
+        employeeRepository.insertChanges(List.of(createdEmployee.getId()));
+        // drops a cached "not found" for the new id
+        evict(createdEmployee.getId());
+        employeeSearchIndex.indexEmployee(EmployeeView.of(createdEmployee));
+        return createdEmployee;
     }
 
     @Override
-    public List<Employee> getAllEmployees() {
-        return employeeRepository.findAll();
+    @Transactional
+    public List<EmployeeBatchResult> saveEmployees(List<Employee> employees) {
+
+        // one set-based lookup for the whole batch instead of a findByEmail per employee
+        Set<String> existingEmails = new HashSet<>(employeeRepository.findExistingEmails(
+                employees.stream().map(Employee::getEmail).toList()));
+        Set<String> batchEmails = new HashSet<>();
+
+        List<EmployeeBatchResult> results = new ArrayList<>(employees.size());
+        List<Employee> newEmployees = new ArrayList<>(employees.size());
+        for (Employee employee : employees) {
+            if (existingEmails.contains(employee.getEmail()) || !batchEmails.add(employee.getEmail())) {
+                results.add(EmployeeBatchResult.conflict(employee,
+                        "Employee already exist with given email: " + employee.getEmail()));
+            } else {
+                newEmployees.add(employee);
+                results.add(EmployeeBatchResult.created(employee));
+            }
+        }
+        // inserts go out as JDBC batches; a row created concurrently since the lookup fails the whole chunk
+        try {
+            employeeRepository.saveAllAndFlush(newEmployees);
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateEmail(e, "Employee with one of the given emails was created concurrently");
+        }
+        if (!newEmployees.isEmpty()) {
+            employeeRepository.incrementTableVersion();
+            employeeRepository.insertChanges(newEmployees.stream().map(Employee::getId).toList());
+        }
+        newEmployees.forEach(employee -> {
+            evict(employee.getId());
+            employeeSearchIndex.indexEmployee(EmployeeView.of(employee));
+        });
+        return results;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmployeeView> getAllEmployees() {
+        return employeeRepository.findAllViews();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmployeeView> getEmployeesByName(String firstName, String lastName) {
+        return employeeRepository.findViewsByName(firstName, lastName);
+    }
+
+    // served from memory, MySQL is never asked to run a LIKE per keystroke
+    @Override
+    public List<EmployeeView> searchEmployees(String query, int limit) {
+        return employeeSearchIndex.search(query, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeePage getEmployeesPage(String afterCursor, int limit) {
+        long afterId = EmployeePage.decodeCursor(afterCursor);
+        int pageSize = EmployeePage.pageSize(limit);
+
+        // one extra row tells us whether there is a next page without a count query
+        List<EmployeeView> employees = employeeRepository.findViewsByIdGreaterThanOrderByIdAsc(afterId,
+                Limit.of(pageSize + 1));
+        return EmployeePage.of(employees, pageSize);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void exportEmployees(Consumer<EmployeeView> consumer) {
+        try (Stream<EmployeeView> employees = employeeRepository.streamAllBy()) {
+            employees.forEach(consumer);
+        }
+    }
+
+    // one seek on the change log after the token, a sync costs the changes since the last one, not the table
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeeChanges getChanges(String sinceToken, int limit) {
+        EmployeeChanges.Token since = EmployeeChanges.decodeToken(sinceToken);
+        int pageSize = EmployeeChanges.pageSize(limit);
+
+        // one extra change tells whether more are waiting
+        List<EmployeeChange> changes = employeeRepository.findChangesAfter(since.changeSeq(), since.id(),
+                pageSize + 1);
+        return EmployeeChanges.of(changes, pageSize, since);
+    }
+
+    // the version is read first: whatever the isolation level, it can then only be older than the rows the
+    // reader sees, which costs a client one needless download but never hides a change behind a 304
+    @Override
+    @Transactional(readOnly = true)
+    public <T> T getIfModified(LongPredicate notModified, Supplier<T> reader) {
+        if (notModified.test(employeeRepository.findTableVersion())) {
+            return null;
+        }
+        return reader.get();
+    }
+
+    // no transaction here, so cache hits never borrow a connection; misses load an unmanaged row, not an entity,
+    // from the primary, since a row from a lagging replica would stay cached for the whole TTL
     @Override
     public Optional<Employee> getEmployeeById(long id) {
-        return employeeRepository.findById(id);
+        return employeeCache.get(id, key -> ReplicaRouting.onPrimary(
+                () -> employeeRepository.findDetachedById(key)));
     }
 
     @Override
+    @Transactional
     public Employee updateEmployee(Employee updatedEmployee) {
-        return employeeRepository.save(updatedEmployee);
+        Employee savedEmployee = employeeRepository.save(updatedEmployee);
+        recordChanges(List.of(savedEmployee.getId()));
+        evict(savedEmployee.getId());
+        employeeSearchIndex.indexEmployee(EmployeeView.of(savedEmployee));
+        return savedEmployee;
     }
 
     @Override
+    @Transactional
+    public Optional<Employee> updateEmployee(long id, Employee updatedEmployee) {
+        int updated;
+        try {
+            updated = employeeRepository.updateEmployee(id, updatedEmployee.getFirstName(),
+                    updatedEmployee.getLastName(), updatedEmployee.getEmail());
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateEmail(e, "Employee already exist with given email: " + updatedEmployee.getEmail());
+        }
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(updated(id, updatedEmployee));
+    }
+
+    // lost updates are rejected by the UPDATE itself, a read of the row is only needed to tell 412 from 404
+    @Override
+    @Transactional
+    public Optional<Employee> updateEmployee(long id, Employee updatedEmployee, long expectedVersion) {
+        int updated;
+        try {
+            updated = employeeRepository.updateEmployeeIfVersion(id, expectedVersion, updatedEmployee.getFirstName(),
+                    updatedEmployee.getLastName(), updatedEmployee.getEmail());
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateEmail(e, "Employee already exist with given email: " + updatedEmployee.getEmail());
+        }
+        if (updated == 0) {
+            checkMissing(id, expectedVersion);
+            return Optional.empty();
+        }
+        updatedEmployee.setVersion(expectedVersion + 1);
+        return Optional.of(updated(id, updatedEmployee));
+    }
+
+    @Override
+    @Transactional
+    public boolean patchEmployee(long id, Employee patch) {
+        int updated;
+        try {
+            updated = employeeRepository.patchEmployee(id, patch.getFirstName(), patch.getLastName(), patch.getEmail());
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateEmail(e, "Employee already exist with given email: " + patch.getEmail());
+        }
+        if (updated == 0) {
+            return false;
+        }
+        patched(id, patch);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean patchEmployee(long id, Employee patch, long expectedVersion) {
+        int updated;
+        try {
+            updated = employeeRepository.patchEmployeeIfVersion(id, expectedVersion, patch.getFirstName(),
+                    patch.getLastName(), patch.getEmail());
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateEmail(e, "Employee already exist with given email: " + patch.getEmail());
+        }
+        if (updated == 0) {
+            checkMissing(id, expectedVersion);
+            return false;
+        }
+        patched(id, patch);
+        return true;
+    }
+
+    @Override
+    @Transactional
     public void deleteEmployee(long id) {
-        employeeRepository.deleteById(id);
+        int deleted = employeeRepository.deleteEmployeeById(id);
+        evict(id);
+        if (deleted == 0) {
+            throw new ResourceNotFoundException("Employee not found with given id: " + id);
+        }
+        recordDeletions(List.of(id));
+        employeeSearchIndex.removeEmployee(id);
+    }
+
+    @Override
+    @Transactional
+    public int deleteEmployees(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int deleted = employeeRepository.deleteEmployeesByIdIn(ids);
+        if (deleted > 0) {
+            recordDeletions(ids);
+        }
+        ids.forEach(id -> {
+            evict(id);
+            employeeSearchIndex.removeEmployee(id);
+        });
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public int deleteEmployeesByLastName(String lastName) {
+        // the change log needs the ids; the read locks them, so the delete removes exactly these
+        List<Long> ids = employeeRepository.findIdsByLastNameForUpdate(lastName);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int deleted = employeeRepository.deleteEmployeesByLastName(lastName);
+        recordDeletions(ids);
+        ids.forEach(this::evict);
+        employeeSearchIndex.removeEmployeesByLastName(lastName);
+        return deleted;
+    }
+
+    private Employee updated(long id, Employee updatedEmployee) {
+        recordChanges(List.of(id));
+        evict(id);
+        updatedEmployee.setId(id);
+        employeeSearchIndex.indexEmployee(EmployeeView.of(updatedEmployee));
+        return updatedEmployee;
+    }
+
+    private void patched(long id, Employee patch) {
+        recordChanges(List.of(id));
+        evict(id);
+        employeeSearchIndex.indexPatch(id, patch.getFirstName(), patch.getLastName(), patch.getEmail());
+    }
+
+    // the table version is bumped after the rows were written and the change log stamped right after it, so the
+    // version's row lock is only held from there to the commit; employees written outside of this service may lack
+    // a change log row, they get one
+    private void recordChanges(Collection<Long> ids) {
+        employeeRepository.incrementTableVersion();
+        if (employeeRepository.stampChanges(ids) < ids.size()) {
+            employeeRepository.insertChanges(ids);
+        }
+    }
+
+    private void recordDeletions(Collection<Long> ids) {
+        employeeRepository.incrementTableVersion();
+        employeeRepository.stampDeletions(ids);
+    }
+
+    private void checkMissing(long id, long expectedVersion) {
+        if (employeeRepository.existsById(id)) {
+            throw new VersionMismatchException("Employee " + id + " is no longer at version " + expectedVersion);
+        }
+    }
+
+    // encoded responses are keyed by version and could not be served stale, evicting just frees their bytes early
+    private void evict(long id) {
+        employeeCache.invalidate(id);
+        responseCache.invalidate(id);
+    }
+
+    private static RuntimeException translateDuplicateEmail(DataIntegrityViolationException e, String message) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase().contains(Employee.EMAIL_UNIQUE_CONSTRAINT)) {
+                return new ResourceAlreadyExistsException(message, e);
+            }
+        }
+        return e;
     }
 }
@@ -0,0 +1,23 @@
+package latsko.springboottesting.startup;
+
+import latsko.springboottesting.ingest.EmployeeIngestQueue;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+// spring.main.lazy-initialization is only set in application-fast-startup.properties, these beans stay eager there
+@Configuration
+@Profile("fast-startup")
+public class LazyStartupConfig {
+
+    // the entity manager factory pulls in the data source and the Flyway migration, the rest can wait; the ingest
+    // queue opens its journal when created, and employees left in it by a crash must be requeued at start rather
+    // than on the first async create
+    @Bean
+    public static LazyInitializationExcludeFilter eagerAtStartup() {
+        return LazyInitializationExcludeFilter.forBeanTypes(LocalContainerEntityManagerFactoryBean.class,
+                EmployeeIngestQueue.class);
+    }
+}
@@ -0,0 +1,129 @@
+package latsko.springboottesting.web;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrency limit that follows the latency of the requests it admits, in the style of TCP Vegas and the
+ * gradient limiters of Netflix's concurrency-limits. Latency is averaged over short windows and compared with
+ * a long-running average: while a window stays within the tolerance the limit probes upwards by about
+ * sqrt(limit), beyond it the limit shrinks in proportion to how much slower the window was. A server error
+ * backs the limit off multiplicatively, as TCP does on loss.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    // the long-running average spans about a minute of busy windows
+    private static final int LONG_WINDOWS = 600;
+    // latency may double before the limit starts shrinking, so noise alone does not shed load
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    // a lock instead of synchronized, samples come from request threads that may be virtual
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // guarded by lock
+    private double estimate;
+    private double longRtt;
+    private long windowStart;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limits: min " + minLimit + ", max " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimate = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+        this.limit = (int) estimate;
+    }
+
+    /**
+     * Takes a slot without waiting. Returns the number of requests in flight including this one, or 0 when
+     * the limit is reached.
+     */
+    int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return 0;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Gives a slot back and feeds the latency of its request into the limit.
+     */
+    void release(int inFlightAtStart, long rttNanos, boolean dropped) {
+        inFlight.decrementAndGet();
+        onSample(System.nanoTime(), inFlightAtStart, rttNanos, dropped);
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    void onSample(long now, int inFlightAtStart, long rttNanos, boolean dropped) {
+        lock.lock();
+        try {
+            addSample(now, inFlightAtStart, rttNanos, dropped);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addSample(long now, int inFlightAtStart, long rttNanos, boolean dropped) {
+        if (windowSamples == 0) {
+            windowStart = now;
+        }
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        windowDropped |= dropped;
+        if (now - windowStart < WINDOW_NANOS || windowSamples < MIN_WINDOW_SAMPLES) {
+            return;
+        }
+
+        double shortRtt = (double) windowRttSum / windowSamples;
+        double next = estimate;
+        if (windowDropped) {
+            next = estimate * BACKOFF_RATIO;
+        } else {
+            longRtt = longRtt == 0 ? shortRtt : longRtt + (shortRtt - longRtt) / LONG_WINDOWS;
+            // once an overload is over, let the average come back down instead of holding the limit for minutes
+            if (longRtt > 2 * shortRtt) {
+                longRtt *= 0.95;
+            }
+            // a window that used less than half the limit says nothing about how far it could grow
+            if (windowMaxInFlight >= estimate / 2) {
+                double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+                double probed = estimate * gradient + Math.sqrt(estimate);
+                next = estimate * (1 - SMOOTHING) + probed * SMOOTHING;
+            }
+        }
+        estimate = Math.min(Math.max(next, minLimit), maxLimit);
+        limit = (int) estimate;
+
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        windowDropped = false;
+    }
+}
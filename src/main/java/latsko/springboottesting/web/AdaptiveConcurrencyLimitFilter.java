@@ -0,0 +1,153 @@
+package latsko.springboottesting.web;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import latsko.springboottesting.exception.SearchIndexNotReadyException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sheds load before it reaches the database. Every {@link EndpointClass} is a bulkhead with its own
+ * {@link AdaptiveConcurrencyLimit}; a request over its limit is answered 503 with Retry-After at once instead
+ * of queueing for a Tomcat thread or a pooled connection, so a slow database shrinks the limits rather than
+ * the latency of every request growing with it.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "employees.concurrency.enabled", havingValue = "true", matchIfMissing = true)
+public class AdaptiveConcurrencyLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final String PREFIX = "employees.concurrency.";
+
+    private final Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, LongAdder> rejected = new EnumMap<>(EndpointClass.class);
+    private final String retryAfterSeconds;
+
+    // limits are set per class, e.g. employees.concurrency.bulk.max-limit, falling back to employees.concurrency.*
+    public AdaptiveConcurrencyLimitFilter(Environment environment,
+                                          @Value("${employees.concurrency.retry-after:1s}") Duration retryAfter) {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            limits.put(endpointClass, new AdaptiveConcurrencyLimit(
+                    setting(environment, endpointClass, "initial-limit", 20),
+                    setting(environment, endpointClass, "min-limit", 1),
+                    setting(environment, endpointClass, "max-limit", 200)));
+            rejected.put(endpointClass, new LongAdder());
+        }
+        this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = EndpointClass.of(request);
+        AdaptiveConcurrencyLimit limit = limits.get(endpointClass);
+        int inFlight = limit.tryAcquire();
+        if (inFlight == 0) {
+            rejected.get(endpointClass).increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+            if (request.isAsyncStarted()) {
+                // streaming responses are measured until the async request completes
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(limit, inFlight, start));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                limit.release(inFlight, System.nanoTime() - start, failed || isOverload(request, response.getStatus()));
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            Tags tags = Tags.of("endpoint", endpointClass.key());
+            Gauge.builder("employees.concurrency.limit", limits.get(endpointClass), AdaptiveConcurrencyLimit::limit)
+                    .description("Requests the endpoint class currently admits at the same time")
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("employees.concurrency.in.flight", limits.get(endpointClass), AdaptiveConcurrencyLimit::inFlight)
+                    .description("Requests of the endpoint class being handled")
+                    .tags(tags)
+                    .register(registry);
+            FunctionCounter.builder("employees.concurrency.rejected", rejected.get(endpointClass), LongAdder::sum)
+                    .description("Requests answered 503 because the endpoint class was at its limit")
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+
+    AdaptiveConcurrencyLimit limit(EndpointClass endpointClass) {
+        return limits.get(endpointClass);
+    }
+
+    // every server error counts, a 503 from an exhausted pool included, except the one the search answers while its
+    // index loads, which says nothing about overload; the dispatcher leaves the exception it resolved on the request
+    static boolean isOverload(HttpServletRequest request, int status) {
+        return status >= 500 && !(status == HttpStatus.SERVICE_UNAVAILABLE.value()
+                && request.getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE) instanceof SearchIndexNotReadyException);
+    }
+
+    private static int setting(Environment environment, EndpointClass endpointClass, String name, int defaultValue) {
+        Integer value = environment.getProperty(PREFIX + endpointClass.key() + "." + name, Integer.class);
+        return value != null ? value : environment.getProperty(PREFIX + name, Integer.class, defaultValue);
+    }
+
+    private record ReleasingAsyncListener(AdaptiveConcurrencyLimit limit, int inFlight, long start)
+            implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            int status = ((HttpServletResponse) event.getSuppliedResponse()).getStatus();
+            limit.release(inFlight, System.nanoTime() - start,
+                    isOverload((HttpServletRequest) event.getSuppliedRequest(), status));
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package latsko.springboottesting.web;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * With virtual threads Tomcat no longer caps the number of requests in flight, so every request would end up
+ * queued inside Hikari. This filter admits at most as many API requests as the pool has connections and
+ * answers 503 to those that cannot get a permit within the acquire timeout.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class ConnectionPoolConcurrencyLimiter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+
+    public ConnectionPoolConcurrencyLimiter(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${employees.virtual-threads.acquire-timeout:2s}") Duration acquireTimeout) {
+        this.permits = new Semaphore(maximumPoolSize, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests");
+            return;
+        }
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // streaming responses keep their connection until the async request completes
+                request.getAsyncContext().addListener(new ReleasingAsyncListener());
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permits.release();
+            }
+        }
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private class ReleasingAsyncListener implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permits.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package latsko.springboottesting.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Set;
+
+/**
+ * Groups the employee API by cost, each group gets its own concurrency limit so an expensive one cannot use
+ * up the capacity of the cheap ones.
+ */
+enum EndpointClass {
+
+    // one employee by id, typeahead search
+    READ("read"),
+    // collection queries and the change feed, up to a page or the whole table per request
+    LIST("list"),
+    // create, update, patch and delete
+    WRITE("write"),
+    // the streaming export and batch create, each holds a connection for the whole table or batch
+    BULK("bulk");
+
+    private static final String COLLECTION = "/api/employees";
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final String key;
+
+    EndpointClass(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return key;
+    }
+
+    static EndpointClass of(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.endsWith("/export") || uri.endsWith("/batch")) {
+            return BULK;
+        }
+        if (!SAFE_METHODS.contains(request.getMethod())) {
+            return WRITE;
+        }
+        return uri.equals(COLLECTION) || uri.equals(COLLECTION + "/") || uri.endsWith("/changes") ? LIST : READ;
+    }
+}
@@ -0,0 +1,81 @@
+package latsko.springboottesting.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import latsko.springboottesting.datasource.ReplicaRouting;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Read-your-writes for replica routing. A write hands the client a cookie holding the time until which its
+ * requests read from the primary, long enough for the replicas to catch up. The cookie carries all the state,
+ * so it works across instances; a forged one only sends that client's reads to the primary.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "employees.datasource.replicas.urls")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String PRIMARY_UNTIL_COOKIE = "employees-primary-until";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(@Value("${employees.datasource.read-your-writes-window:5s}") Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            // set before the response is committed; a write that then fails only costs a few primary reads
+            Cookie cookie = new Cookie(PRIMARY_UNTIL_COOKIE, Long.toString(now + window.toMillis()));
+            cookie.setPath("/api");
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+        if (write || primaryUntil(request) > now) {
+            try (ReplicaRouting.Pin pin = ReplicaRouting.pinToPrimary()) {
+                filterChain.doFilter(request, response);
+            }
+        } else {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (PRIMARY_UNTIL_COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,70 @@
+package latsko.springboottesting.web;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import latsko.springboottesting.metrics.StatementCounter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements each API request issued as hibernate.statements.per.request, tagged like
+ * http.server.requests with method, uri template and status. Statements issued after a request went async,
+ * e.g. by the streaming export, are not attributed to it. Without a MeterRegistry, as in MVC test slices, requests
+ * pass through unrecorded.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "employees.metrics.statements.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementCountMetricsFilter extends OncePerRequestFilter {
+
+    private final Meter.MeterProvider<DistributionSummary> statementsPerRequest;
+
+    @Autowired
+    public StatementCountMetricsFilter(ObjectProvider<MeterRegistry> meterRegistry) {
+        this(meterRegistry.getIfAvailable());
+    }
+
+    public StatementCountMetricsFilter(MeterRegistry meterRegistry) {
+        this.statementsPerRequest = meterRegistry == null ? null
+                : DistributionSummary.builder("hibernate.statements.per.request")
+                        .description("SQL statements prepared while handling a request")
+                        .baseUnit("statements")
+                        .publishPercentileHistogram()
+                        .withRegistry(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return statementsPerRequest == null || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = StatementCounter.stop();
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            statementsPerRequest.withTags(Tags.of(
+                            "method", request.getMethod(),
+                            "uri", uri != null ? uri.toString() : "UNKNOWN",
+                            "status", Integer.toString(response.getStatus())))
+                    .record(statements);
+        }
+    }
+}
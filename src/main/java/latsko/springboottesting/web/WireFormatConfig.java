@@ -0,0 +1,51 @@
+package latsko.springboottesting.web;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Smile ({@code application/x-jackson-smile}) and CBOR ({@code application/cbor}) next to JSON, for callers
+ * that ask for them in Accept or send them as Content-Type. JSON stays the default for {@code *}{@code /*}.
+ * Both mappers come from the builder Spring Boot configures, so they share the modules and settings of the
+ * JSON one, and the same Jackson annotations decide what goes on the wire.
+ */
+@Configuration
+public class WireFormatConfig implements WebMvcConfigurer {
+
+    // declared as beans, Spring Boot puts them where its default Smile and CBOR converters would be
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    // the format follows Accept, on 304s as well, so caches must key stored responses on it
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                // runs again when an async response dispatches back
+                if (!response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+                    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                }
+                return true;
+            }
+        }).addPathPatterns("/api/**");
+    }
+}
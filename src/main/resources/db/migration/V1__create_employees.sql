@@ -0,0 +1,16 @@
+-- schema as Hibernate's ddl-auto=update created it, existing databases are baselined at this version
+create table employees (
+    id bigint not null,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    email varchar(255) not null,
+    primary key (id),
+    constraint uk_employees_email unique (email)
+) engine = InnoDB;
+
+-- table-backed sequence for the pooled-lo id generator, shared with the R2DBC repository
+create table employees_seq (
+    next_val bigint
+) engine = InnoDB;
+
+insert into employees_seq values (1);
@@ -0,0 +1,2 @@
+-- serves the first/last-name finders; last_name leads so lookups and deletes by last name alone use it too
+create index idx_employees_last_name_first_name on employees (last_name, first_name);
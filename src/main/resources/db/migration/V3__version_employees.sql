@@ -0,0 +1,11 @@
+-- optimistic locking: every update of a row bumps its version, clients see it as the employee's ETag
+alter table employees add column version bigint not null default 0;
+
+-- a single counter for the whole table, bumped by every write transaction; the list ETags are derived from it
+create table employees_version (
+    id int not null,
+    version bigint not null,
+    primary key (id)
+) engine = InnoDB;
+
+insert into employees_version values (1, 0);
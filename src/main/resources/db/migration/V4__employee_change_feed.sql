@@ -0,0 +1,14 @@
+-- change feed: one row per employee with the employees_version value of the last transaction that created,
+-- updated or deleted it; deleted employees keep their row as a tombstone
+create table employee_changes (
+    employee_id bigint not null,
+    change_seq bigint not null,
+    deleted bit not null,
+    primary key (employee_id)
+) engine = InnoDB;
+
+-- the feed seeks from a (change_seq, employee_id) token onwards
+create index idx_employee_changes_change_seq on employee_changes (change_seq, employee_id);
+
+-- employees that predate the feed, a client syncing from the start gets them all
+insert into employee_changes (employee_id, change_seq, deleted) select id, 0, 0 from employees;
@@ -0,0 +1,10 @@
+-- databases baselined at V1 got their ids from auto_increment and have no employees_seq, or one still at 1 that
+-- ddl-auto=update created; either way the next id handed out must be past every existing one
+create table if not exists employees_seq (
+    next_val bigint
+) engine = InnoDB;
+
+insert into employees_seq (next_val) select 1 from dual where not exists (select * from employees_seq);
+
+-- never moves backwards, a block pooled-lo already handed out stays reserved
+update employees_seq set next_val = greatest(next_val, (select coalesce(max(id), 0) + 1 from employees));
@@ -0,0 +1,12 @@
+-- databases baselined at V1 were built by ddl-auto=update from an entity without the unique email constraint, so
+-- V1 never ran there; fresh ones already have it. Fails if the table holds duplicate emails, they must be merged
+-- or removed first, e.g. found with: select email from employees group by email having count(*) > 1
+set @missing = (select count(*) = 0 from information_schema.table_constraints
+                where table_schema = database() and table_name = 'employees'
+                  and constraint_name = 'uk_employees_email');
+
+set @ddl = if(@missing, 'alter table employees add constraint uk_employees_email unique (email)', 'do 0');
+
+prepare add_email_constraint from @ddl;
+execute add_email_constraint;
+deallocate prepare add_email_constraint;
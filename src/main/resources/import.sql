@@ -0,0 +1,2 @@
+-- only run by Hibernate when it creates the schema itself (ddl-auto=create), Flyway seeds it everywhere else
+insert into employees_version (id, version) values (1, 0)
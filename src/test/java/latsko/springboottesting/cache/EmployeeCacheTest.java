@@ -0,0 +1,111 @@
+package latsko.springboottesting.cache;
+
+import latsko.springboottesting.model.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmployeeCacheTest {
+
+    private EmployeeCache employeeCache;
+    private Employee employee;
+
+    @BeforeEach
+    public void setUp() {
+        employeeCache = new EmployeeCache(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+        employee = Employee.builder()
+                .id(1L)
+                .firstName("John")
+                .lastName("Doe")
+                .email("simple@gmail.com")
+                .build();
+    }
+
+    @DisplayName("Junit test for cache hit and miss counters")
+    @Test
+    public void givenCachedEmployee_whenGet_thenLoaderCalledOnce() {
+        //given
+        AtomicInteger loads = new AtomicInteger();
+
+        //when
+        employeeCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(employee);
+        });
+        Optional<Employee> cached = employeeCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(employee);
+        });
+
+        //then
+        assertThat(cached).isPresent();
+        assertThat(cached.get()).isNotSameAs(employee);
+        assertThat(loads).hasValue(1);
+        assertThat(employeeCache.stats().hitCount()).isEqualTo(1);
+        assertThat(employeeCache.stats().missCount()).isEqualTo(1);
+    }
+
+    @DisplayName("Junit test for negative caching of missing ids")
+    @Test
+    public void givenMissingEmployee_whenGetTwice_thenMissIsCached() {
+        //given
+        AtomicInteger loads = new AtomicInteger();
+
+        //when
+        employeeCache.get(2L, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        Optional<Employee> cached = employeeCache.get(2L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(employee);
+        });
+
+        //then
+        assertThat(cached).isEmpty();
+        assertThat(loads).hasValue(1);
+    }
+
+    @DisplayName("Junit test for invalidation racing with an in-flight load")
+    @Test
+    public void givenLoadInFlight_whenInvalidate_thenStaleValueIsNotKept() throws Exception {
+        //given
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch deleted = new CountDownLatch(1);
+        CompletableFuture<Optional<Employee>> staleRead = CompletableFuture.supplyAsync(() ->
+                employeeCache.get(1L, id -> {
+                    loading.countDown();
+                    await(deleted);
+                    // row read before the delete committed
+                    return Optional.of(employee);
+                }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //when
+        CompletableFuture<Void> invalidation = CompletableFuture.runAsync(() -> employeeCache.invalidate(1L));
+        deleted.countDown();
+        staleRead.get(5, TimeUnit.SECONDS);
+        invalidation.get(5, TimeUnit.SECONDS);
+
+        //then
+        Optional<Employee> afterDelete = employeeCache.get(1L, id -> Optional.empty());
+        assertThat(afterDelete).isEmpty();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package latsko.springboottesting.cache;
+
+import latsko.springboottesting.model.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmployeeResponseCacheTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private EmployeeResponseCache responseCache;
+    private Employee employee;
+
+    @BeforeEach
+    public void setUp() {
+        responseCache = responseCache(DataSize.ofMegabytes(1), false);
+        employee = Employee.builder()
+                .id(1L)
+                .firstName("John")
+                .lastName("Doe")
+                .email("simple@gmail.com")
+                .version(3)
+                .build();
+    }
+
+    @DisplayName("Junit test for content type selection")
+    @Test
+    public void givenAcceptHeader_whenSelect_thenPreferJsonForWildcards() {
+        //when, then
+        assertThat(responseCache.select(List.of(MediaType.ALL))).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(responseCache.select(List.of(SMILE, MediaType.ALL))).isEqualTo(SMILE);
+        assertThat(responseCache.select(List.of(MediaType.TEXT_HTML))).isNull();
+    }
+
+    @DisplayName("Junit test for encoding once per version")
+    @Test
+    public void givenSameVersion_whenGetTwice_thenEncodeOnce() {
+        //when
+        String first = json(responseCache.get(employee, MediaType.APPLICATION_JSON));
+        String second = json(responseCache.get(employee, MediaType.APPLICATION_JSON));
+
+        //then
+        assertThat(second).isEqualTo(first).contains("\"email\":\"simple@gmail.com\"");
+        assertThat(responseCache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @DisplayName("Junit test for re-encoding a newer version")
+    @Test
+    public void givenNewVersion_whenGet_thenReturnNewBody() {
+        //given
+        responseCache.get(employee, MediaType.APPLICATION_JSON);
+        Employee updated = employee.toBuilder().email("updated@gmail.com").version(4).build();
+
+        //when
+        String body = json(responseCache.get(updated, MediaType.APPLICATION_JSON));
+        String stale = json(responseCache.get(employee, MediaType.APPLICATION_JSON));
+
+        //then
+        assertThat(body).contains("updated@gmail.com");
+        assertThat(stale).contains("simple@gmail.com");
+        // the older read is served but does not replace the newer body
+        assertThat(json(responseCache.get(updated, MediaType.APPLICATION_JSON))).isEqualTo(body);
+    }
+
+    @DisplayName("Junit test for off-heap bodies")
+    @Test
+    public void givenOffHeap_whenGet_thenReturnDirectBuffer() {
+        //given
+        EmployeeResponseCache offHeap = responseCache(DataSize.ofMegabytes(1), true);
+
+        //when
+        ByteBuffer body = offHeap.get(employee, SMILE);
+
+        //then
+        assertThat(body.isDirect()).isTrue();
+        assertThat(body.remaining()).isPositive();
+    }
+
+    private static EmployeeResponseCache responseCache(DataSize maximumSize, boolean offHeap) {
+        return new EmployeeResponseCache(List.of(
+                new MappingJackson2SmileHttpMessageConverter(Jackson2ObjectMapperBuilder.smile().build()),
+                new MappingJackson2HttpMessageConverter()), maximumSize, offHeap);
+    }
+
+    private static String json(ByteBuffer body) {
+        return StandardCharsets.UTF_8.decode(body).toString();
+    }
+}
@@ -0,0 +1,347 @@
+package latsko.springboottesting.contoller;
+
+import latsko.springboottesting.exception.InvalidCursorException;
+import latsko.springboottesting.exception.ResourceAlreadyExistsException;
+import latsko.springboottesting.exception.ResourceNotFoundException;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeePage;
+import latsko.springboottesting.model.EmployeeView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Scenarios the servlet and the reactive employee API must answer alike. Requests go through a
+ * {@link WebTestClient}, bound to MockMvc for the servlet stack; each stack stubs its own service.
+ */
+public abstract class AbstractEmployeeControllerTest {
+
+    protected Employee employee1;
+    protected Employee employee2;
+    protected long employeeId;
+
+    @BeforeEach
+    public void setUpEmployees() {
+        employeeId = 1L;
+        employee1 = createEmployee("Name1", "Surname1", "email1@gmail.com");
+        employee2 = createEmployee("Name2", "Surname2", "email2@gmail.com");
+    }
+
+    protected abstract WebTestClient webTestClient();
+
+    // saveEmployee returns the employee it was given
+    protected abstract void givenSaveEmployee();
+
+    protected abstract void givenSaveEmployeeFails(RuntimeException e);
+
+    // saveEmployees creates the first chunk and fails on the second
+    protected abstract void givenSaveEmployeesFailsOnSecondChunk(RuntimeException e);
+
+    protected abstract void givenAllEmployees(List<Employee> employees);
+
+    protected abstract void givenEmployeesPage(String afterCursor, int limit, EmployeePage page);
+
+    protected abstract void givenEmployeesPageFails(String afterCursor, int limit, RuntimeException e);
+
+    protected abstract void givenEmployee(long id, Optional<Employee> employee);
+
+    // updateEmployee returns the employee it was given
+    protected abstract void givenUpdateEmployee(long id);
+
+    protected abstract void givenMissingEmployeeOnUpdate(long id);
+
+    // patchEmployee answers only a patch that sets the email and leaves the other fields alone
+    protected abstract void givenPatchEmployee(long id, String email, boolean patched);
+
+    protected abstract void givenDeleteEmployee(long id);
+
+    protected abstract void givenDeleteEmployeeFails(long id, RuntimeException e);
+
+    protected abstract void givenDeleteEmployees(List<Long> ids, int deleted);
+
+    protected abstract void givenDeleteEmployeesByLastName(String lastName, int deleted);
+
+    @DisplayName("Junit test for createEmployee REST API method")
+    @Test
+    public void givenEmployeeObject_whenCreateEmployee_thenReturnSavedEmployee() {
+        //given
+        givenSaveEmployee();
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee1)
+                .exchange();
+
+        //then
+        response.expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo(employee1.getFirstName())
+                .jsonPath("$.lastName").isEqualTo(employee1.getLastName())
+                .jsonPath("$.email").isEqualTo(employee1.getEmail());
+    }
+
+    @DisplayName("Junit test for createEmployee REST API method (duplicate email)")
+    @Test
+    public void givenExistingEmail_whenCreateEmployee_thenReturnConflict() {
+        //given
+        givenSaveEmployeeFails(
+                new ResourceAlreadyExistsException("Employee already exist with given email: email1@gmail.com"));
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee1)
+                .exchange();
+
+        //then
+        response.expectStatus().isEqualTo(409);
+    }
+
+    @DisplayName("Junit test for createEmployees batch REST API method (second chunk fails)")
+    @Test
+    public void givenSecondChunkFails_whenCreateEmployees_thenReturnFirstChunkAndFailedIndex() {
+        //given
+        givenSaveEmployeesFailsOnSecondChunk(
+                new ResourceAlreadyExistsException("Employee with one of the given emails was created concurrently"));
+        // the reactive controller chunks the same way
+        int count = EmployeeController.BATCH_CHUNK_SIZE + 1;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            body.append("{\"firstName\":\"Name").append(i).append("\",\"lastName\":\"Surname").append(i)
+                    .append("\",\"email\":\"email").append(i).append("@gmail.com\"}\n");
+        }
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().post().uri("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body.toString())
+                .exchange();
+
+        //then
+        response.expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(count)
+                .jsonPath("$[0].status").isEqualTo("CREATED")
+                .jsonPath("$[%d].status", count - 2).isEqualTo("CREATED")
+                .jsonPath("$[%d].status", count - 1).isEqualTo("FAILED")
+                .jsonPath("$[%d].index", count - 1).isEqualTo(EmployeeController.BATCH_CHUNK_SIZE)
+                .jsonPath("$[%d].message", count - 1)
+                .isEqualTo("Employee with one of the given emails was created concurrently");
+    }
+
+    @DisplayName("Junit test for getAllEmployees REST API method")
+    @Test
+    public void givenListOfEmployees_whenGetAllEmployees_thenReturnEmployeesList() {
+        //given
+        givenAllEmployees(List.of(employee1, employee2));
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().get().uri("/api/employees?unpaged=true").exchange();
+
+        //then
+        response.expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(2);
+    }
+
+    @DisplayName("Junit test for getEmployeesPage REST API method")
+    @Test
+    public void givenPageOfEmployees_whenGetEmployeesPage_thenReturnPageWithNextCursor() {
+        //given
+        givenEmployeesPage("MQ", 2,
+                new EmployeePage(List.of(EmployeeView.of(employee1), EmployeeView.of(employee2)), "Mw"));
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().get().uri("/api/employees?after=MQ&limit=2").exchange();
+
+        //then
+        response.expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.size()").isEqualTo(2)
+                .jsonPath("$.nextCursor").isEqualTo("Mw");
+    }
+
+    @DisplayName("Junit test for getEmployeesPage REST API method (invalid cursor)")
+    @Test
+    public void givenInvalidCursor_whenGetEmployeesPage_thenReturnBadRequest() {
+        //given
+        givenEmployeesPageFails("garbage", 50, new InvalidCursorException("Invalid page cursor: garbage"));
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().get().uri("/api/employees?after=garbage").exchange();
+
+        //then
+        response.expectStatus().isBadRequest();
+    }
+
+    @DisplayName("Junit test for getEmployeeById REST API method (positive scenario)")
+    @Test
+    public void givenEmployeeId_whenGetEmployeeById_thenReturnEmployeeObject() {
+        //given
+        givenEmployee(employeeId, Optional.of(employee1));
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().get().uri("/api/employees/{id}", employeeId).exchange();
+
+        //then
+        response.expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo(employee1.getFirstName())
+                .jsonPath("$.lastName").isEqualTo(employee1.getLastName())
+                .jsonPath("$.email").isEqualTo(employee1.getEmail());
+    }
+
+    @DisplayName("Junit test for getEmployeeById REST API method (negative scenario)")
+    @Test
+    public void givenInvalidEmployeeId_whenGetEmployeeById_thenReturnEmpty() {
+        //given
+        givenEmployee(employeeId, Optional.empty());
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().get().uri("/api/employees/{id}", employeeId).exchange();
+
+        //then
+        response.expectStatus().isNotFound();
+    }
+
+    @DisplayName("Junit test for updateEmployee REST API method (positive scenario)")
+    @Test
+    public void givenUpdatedEmployee_whenUpdateEmployee_thenReturnEmployeeObject() {
+        //given
+        givenUpdateEmployee(employeeId);
+        Employee updatedEmployee = createEmployee("updatedName", "updatedSurname", "updated@gmail.com");
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().put().uri("/api/employees/{id}", employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(updatedEmployee)
+                .exchange();
+
+        //then
+        response.expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo(updatedEmployee.getFirstName())
+                .jsonPath("$.lastName").isEqualTo(updatedEmployee.getLastName())
+                .jsonPath("$.email").isEqualTo(updatedEmployee.getEmail());
+    }
+
+    @DisplayName("Junit test for updateEmployee REST API method (negative scenario)")
+    @Test
+    public void givenUpdatedEmployee_whenUpdateEmployee_thenReturnEmpty() {
+        //given
+        givenMissingEmployeeOnUpdate(employeeId);
+        Employee updatedEmployee = createEmployee("updatedName", "updatedSurname", "updated@gmail.com");
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().put().uri("/api/employees/{id}", employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(updatedEmployee)
+                .exchange();
+
+        //then
+        response.expectStatus().isNotFound();
+    }
+
+    @DisplayName("Junit test for patchEmployee REST API method (positive scenario)")
+    @Test
+    public void givenPartialEmployee_whenPatchEmployee_thenReturnNoContent() {
+        //given
+        givenPatchEmployee(employeeId, "patched@gmail.com", true);
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().patch().uri("/api/employees/{id}", employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"email\":\"patched@gmail.com\"}")
+                .exchange();
+
+        //then
+        response.expectStatus().isNoContent();
+    }
+
+    @DisplayName("Junit test for patchEmployee REST API method (negative scenario)")
+    @Test
+    public void givenPartialEmployee_whenPatchEmployee_thenReturnNotFound() {
+        //given
+        givenPatchEmployee(employeeId, "patched@gmail.com", false);
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().patch().uri("/api/employees/{id}", employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"email\":\"patched@gmail.com\"}")
+                .exchange();
+
+        //then
+        response.expectStatus().isNotFound();
+    }
+
+    @DisplayName("Junit test for deleteEmployee REST API method")
+    @Test
+    public void givenEmployeeId_whenDeleteEmployee_thenReturnOk() {
+        //given
+        givenDeleteEmployee(employeeId);
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().delete().uri("/api/employees/{id}", employeeId)
+                .exchange();
+
+        //then
+        response.expectStatus().isOk();
+    }
+
+    @DisplayName("Junit test for deleteEmployee REST API method (negative scenario)")
+    @Test
+    public void givenInvalidEmployeeId_whenDeleteEmployee_thenReturnNotFound() {
+        //given
+        givenDeleteEmployeeFails(employeeId, new ResourceNotFoundException("Employee not found with given id: 1"));
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().delete().uri("/api/employees/{id}", employeeId)
+                .exchange();
+
+        //then
+        response.expectStatus().isNotFound();
+    }
+
+    @DisplayName("Junit test for deleteEmployees bulk REST API method (by ids)")
+    @Test
+    public void givenEmployeeIds_whenDeleteEmployees_thenReturnDeletedCount() {
+        //given
+        givenDeleteEmployees(List.of(1L, 2L, 3L), 3);
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().delete().uri("/api/employees?ids=1,2,3").exchange();
+
+        //then
+        response.expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("3 employees deleted successfully!.");
+    }
+
+    @DisplayName("Junit test for deleteEmployeesByLastName bulk REST API method")
+    @Test
+    public void givenLastName_whenDeleteEmployeesByLastName_thenReturnDeletedCount() {
+        //given
+        givenDeleteEmployeesByLastName("Surname1", 2);
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient().delete().uri("/api/employees?lastName=Surname1")
+                .exchange();
+
+        //then
+        response.expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("2 employees deleted successfully!.");
+    }
+
+    protected static Employee createEmployee(String firstName, String lastName, String email) {
+        return Employee.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(email)
+                .build();
+    }
+}
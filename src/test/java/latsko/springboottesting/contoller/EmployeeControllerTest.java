@@ -1,7 +1,17 @@
 package latsko.springboottesting.contoller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import latsko.springboottesting.cache.EmployeeResponseCache;
+import latsko.springboottesting.exception.VersionMismatchException;
+import latsko.springboottesting.ingest.EmployeeIngestQueue;
 import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeeChange;
+import latsko.springboottesting.model.EmployeeChanges;
+import latsko.springboottesting.model.EmployeeIngestStatus;
+import latsko.springboottesting.model.EmployeePage;
+import latsko.springboottesting.model.EmployeeView;
 import latsko.springboottesting.service.EmployeeService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -9,26 +19,48 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.client.MockMvcWebTestClient;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.is;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest
-class EmployeeControllerTest {
+// the slice has no metrics auto-configuration, the filters that record metrics need a registry of their own
+@Import({EmployeeResponseCache.class, SimpleMeterRegistry.class})
+class EmployeeControllerTest extends AbstractEmployeeControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
@@ -36,148 +68,443 @@ class EmployeeControllerTest {
     @MockBean
     private EmployeeService employeeService;
 
+    @MockBean
+    private EmployeeIngestQueue ingestQueue;
+
     @Autowired
     private ObjectMapper objectMapper;
 
-    private Employee employee1;
-    private Employee employee2;
-    private long employeeId;
-
-
     @BeforeEach
     public void setUp() {
-        employeeId = 1L;
-        employee1 = createEmployee("Name1", "Surname1", "email1@gmail.com");
-        employee2 = createEmployee("Name2", "Surname2", "email2@gmail.com");
+        // the table is at version 7, lists are read unless the client already has that version
+        given(employeeService.getIfModified(any(), any())).willAnswer(invocation ->
+                invocation.<LongPredicate>getArgument(0).test(7) ? null : invocation.<Supplier<?>>getArgument(1).get());
+    }
+
+    @DisplayName("Junit test for createEmployee REST API method (async)")
+    @Test
+    public void givenAsync_whenCreateEmployee_thenReturnAcceptedWithTrackingId() throws Exception {
+        //given
+        given(ingestQueue.submit(any(Employee.class))).willReturn(Optional.of(EmployeeIngestStatus.queued("abc")));
+
+        //when
+        ResultActions response = mockMvc.perform(post("/api/employees").param("async", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employee1)));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/employees/ingest/abc"))
+                .andExpect(jsonPath("$.trackingId", is("abc")))
+                .andExpect(jsonPath("$.status", is("QUEUED")));
+        verify(employeeService, never()).saveEmployee(any(Employee.class));
     }
 
-    @DisplayName("Junit test for createEmployee REST API method")
+    @DisplayName("Junit test for createEmployee REST API method (async, queue full)")
     @Test
-    public void givenEmployeeObject_whenCreateEmployee_thenReturnSavedEmployee() throws Exception {
+    public void givenFullQueue_whenCreateEmployeeAsync_thenReturnTooManyRequests() throws Exception {
         //given
-        given(employeeService.saveEmployee(any(Employee.class)))
-                .willAnswer(invocation -> invocation.getArgument(0));
+        given(ingestQueue.submit(any(Employee.class))).willReturn(Optional.empty());
+        given(ingestQueue.retryAfter()).willReturn(Duration.ofSeconds(2));
 
         //when
-        ResultActions response = mockMvc.perform(post("/api/employees")
+        ResultActions response = mockMvc.perform(post("/api/employees").param("async", "true")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(employee1)));
 
         //then
         response.andDo(print())
-                .andExpect(status().isCreated())
-                .andExpect(jsonPath("$.firstName", is(employee1.getFirstName())))
-                .andExpect(jsonPath("$.lastName", is(employee1.getLastName())))
-                .andExpect(jsonPath("$.email", is(employee1.getEmail())));
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
     }
 
-    @DisplayName("Junit test for getAllEmployees REST API method")
+    @DisplayName("Junit test for createEmployees batch REST API method (JSON array)")
     @Test
-    public void givenListOfEmployees_whenGetAllEmployees_thenReturnEmployeesList() throws Exception {
+    public void givenEmployeeArray_whenCreateEmployees_thenReturnPerItemResults() throws Exception {
         //given
-        List<Employee> listOfEmployees = new ArrayList<>();
-        listOfEmployees.add(employee1);
-        listOfEmployees.add(employee2);
-        given(employeeService.getAllEmployees()).willReturn(listOfEmployees);
+        given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> {
+            List<Employee> employees = invocation.getArgument(0);
+            return List.of(EmployeeBatchResult.created(employees.get(0)),
+                    EmployeeBatchResult.conflict(employees.get(1), "Employee already exist with given email: email2@gmail.com"));
+        });
 
         //when
-        ResultActions response = mockMvc.perform(get("/api/employees"));
+        ResultActions response = mockMvc.perform(post("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(employee1, employee2))));
 
         //then
         response.andDo(print())
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()", is(listOfEmployees.size())));
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[0].employee.email", is(employee1.getEmail())))
+                .andExpect(jsonPath("$[1].status", is("CONFLICT")))
+                .andExpect(jsonPath("$[1].employee.email", is(employee2.getEmail())));
     }
 
-    @DisplayName("Junit test for getEmployeeById REST API method (positive scenario)")
+    @DisplayName("Junit test for createEmployees batch REST API method (NDJSON body split into chunks)")
     @Test
-    public void givenEmployeeId_whenGetEmployeeById_thenReturnEmployeeObject() throws Exception {
+    public void givenNdjsonBody_whenCreateEmployees_thenSaveInChunks() throws Exception {
         //given
-        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee1));
+        given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> {
+            List<Employee> employees = invocation.getArgument(0);
+            return employees.stream().map(EmployeeBatchResult::created).toList();
+        });
+        StringBuilder body = new StringBuilder();
+        int count = EmployeeController.BATCH_CHUNK_SIZE + 1;
+        for (int i = 0; i < count; i++) {
+            body.append(objectMapper.writeValueAsString(createEmployee("Name" + i, "Surname" + i, "email" + i + "@gmail.com")))
+                    .append('\n');
+        }
 
         //when
-        ResultActions response = mockMvc.perform(get("/api/employees/{id}", employeeId));
+        ResultActions response = mockMvc.perform(post("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body.toString()));
 
         //then
         response.andDo(print())
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.firstName", is(employee1.getFirstName())))
-                .andExpect(jsonPath("$.lastName", is(employee1.getLastName())))
-                .andExpect(jsonPath("$.email", is(employee1.getEmail())));
+                .andExpect(jsonPath("$.size()", is(count)));
+        verify(employeeService, times(2)).saveEmployees(anyList());
     }
 
-    @DisplayName("Junit test for getEmployeeById REST API method (negative scenario)")
+    @DisplayName("Junit test for createEmployees batch REST API method (NDJSON results)")
     @Test
-    public void givenInvalidEmployeeId_whenGetEmployeeById_thenReturnEmpty() throws Exception {
+    public void givenNdjsonAccepted_whenCreateEmployees_thenReturnResultPerLine() throws Exception {
         //given
-        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.empty());
+        given(employeeService.saveEmployees(anyList())).willAnswer(invocation ->
+                invocation.<List<Employee>>getArgument(0).stream().map(EmployeeBatchResult::created).toList());
 
         //when
-        ResultActions response = mockMvc.perform(get("/api/employees/{id}", employeeId));
+        ResultActions response = mockMvc.perform(post("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .content(objectMapper.writeValueAsString(List.of(employee1, employee2))));
+
+        //then
+        String body = response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(body.lines()).hasSize(2)
+                .allSatisfy(line -> assertThat(line).contains("\"status\":\"CREATED\""));
+    }
+
+    @DisplayName("Junit test for getEmployeesByName REST API method")
+    @Test
+    public void givenFirstAndLastName_whenGetEmployeesByName_thenReturnMatchingEmployees() throws Exception {
+        //given
+        given(employeeService.getEmployeesByName("Name1", "Surname1")).willReturn(List.of(EmployeeView.of(employee1)));
+
+        //when
+        ResultActions response = mockMvc.perform(get("/api/employees")
+                .param("firstName", "Name1")
+                .param("lastName", "Surname1"));
 
         //then
         response.andDo(print())
-                .andExpect(status().isNotFound());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].email", is(employee1.getEmail())));
     }
 
-    @DisplayName("Junit test for updateEmployee REST API method (positive scenario)")
+    @DisplayName("Junit test for searchEmployees REST API method")
     @Test
-    public void givenUpdatedEmployee_whenUpdateEmployee_thenReturnEmployeeObject() throws Exception {
+    public void givenQuery_whenSearchEmployees_thenReturnBestMatches() throws Exception {
+        //given
+        given(employeeService.searchEmployees("nam", 5)).willReturn(List.of(EmployeeView.of(employee1)));
+
+        //when
+        ResultActions response = mockMvc.perform(get("/api/employees/search")
+                .param("q", "nam")
+                .param("limit", "5"));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].email", is(employee1.getEmail())));
+    }
+
+    @DisplayName("Junit test for getChanges REST API method")
+    @Test
+    public void givenChangesSinceToken_whenGetChanges_thenReturnChangesAndNextToken() throws Exception {
+        //given
+        given(employeeService.getChanges("NS4x", 100)).willReturn(new EmployeeChanges(List.of(
+                new EmployeeChange(6L, 2L, "Jane", "Doe", "jane@gmail.com"), new EmployeeChange(7L, 1L)),
+                "Ny4x", false));
+
+        //when
+        ResultActions response = mockMvc.perform(get("/api/employees/changes").param("since", "NS4x"));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes.size()", is(2)))
+                .andExpect(jsonPath("$.changes[0].email", is("jane@gmail.com")))
+                .andExpect(jsonPath("$.changes[0].changeSeq").doesNotExist())
+                .andExpect(jsonPath("$.changes[1].deleted", is(true)))
+                .andExpect(jsonPath("$.changes[1].email").doesNotExist())
+                .andExpect(jsonPath("$.nextToken", is("Ny4x")))
+                .andExpect(jsonPath("$.hasMore", is(false)));
+    }
+
+    @DisplayName("Junit test for exportEmployees REST API method")
+    @Test
+    public void givenEmployees_whenExportEmployees_thenStreamNdjsonLines() throws Exception {
+        //given
+        willAnswer(invocation -> {
+            Consumer<EmployeeView> consumer = invocation.getArgument(0);
+            consumer.accept(new EmployeeView(1L, "Name1", "Surname1", "email1@gmail.com"));
+            consumer.accept(new EmployeeView(2L, "Name2", "Surname2", "email2@gmail.com"));
+            return null;
+        }).given(employeeService).exportEmployees(any());
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        ResultActions response = mockMvc.perform(asyncDispatch(mvcResult));
+        // employees.export.timeout, not the container's default
+        assertThat(mvcResult.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofMinutes(30).toMillis());
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"id\":1,\"firstName\":\"Name1\",\"lastName\":\"Surname1\",\"email\":\"email1@gmail.com\"}\n" +
+                        "{\"id\":2,\"firstName\":\"Name2\",\"lastName\":\"Surname2\",\"email\":\"email2@gmail.com\"}\n"));
+    }
+
+    @DisplayName("Junit test for getEmployeeById REST API method (Smile)")
+    @Test
+    public void givenSmileAccepted_whenGetEmployeeById_thenReturnSmileEmployee() throws Exception {
         //given
         given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee1));
-        given(employeeService.updateEmployee(any(Employee.class)))
-                .willAnswer(invocation -> invocation.getArgument(0));
-        Employee updatedEmployee = createEmployee("updatedName", "updatedSurname", "updated@gmail.com");
+        ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
 
         //when
-        ResultActions response = mockMvc.perform(put("/api/employees/{id}", employeeId)
-                .contentType(MediaType.APPLICATION_JSON)
-                .content(objectMapper.writeValueAsString(updatedEmployee)));
+        MvcResult result = mockMvc.perform(get("/api/employees/{id}", employeeId)
+                        .accept("application/x-jackson-smile"))
+                .andReturn();
+
+        //then
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        assertThat(result.getResponse().getContentType()).isEqualTo("application/x-jackson-smile");
+        assertThat(result.getResponse().getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT);
+        assertThat(smileMapper.readValue(result.getResponse().getContentAsByteArray(), Employee.class).getEmail())
+                .isEqualTo(employee1.getEmail());
+    }
+
+    @DisplayName("Junit test for getEmployeeById REST API method (not modified)")
+    @Test
+    public void givenCurrentETag_whenGetEmployeeById_thenReturnNotModified() throws Exception {
+        //given
+        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee1.toBuilder().version(3).build()));
+
+        //when
+        ResultActions response = mockMvc.perform(get("/api/employees/{id}", employeeId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\""));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(header().stringValues(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().string(""));
+    }
+
+    @DisplayName("Junit test for getEmployeeById REST API method (JSON ETag, CBOR accepted)")
+    @Test
+    public void givenJsonETagAndCborAccepted_whenGetEmployeeById_thenReturnCborWithItsOwnETag() throws Exception {
+        //given
+        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee1.toBuilder().version(3).build()));
+
+        //when
+        ResultActions response = mockMvc.perform(get("/api/employees/{id}", employeeId)
+                .accept("application/cbor")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\""));
 
         //then
         response.andDo(print())
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.firstName", is(updatedEmployee.getFirstName())))
-                .andExpect(jsonPath("$.lastName", is(updatedEmployee.getLastName())))
-                .andExpect(jsonPath("$.email", is(updatedEmployee.getEmail())));
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-cbor\""))
+                .andExpect(header().stringValues(HttpHeaders.VARY, HttpHeaders.ACCEPT));
     }
 
-    @DisplayName("Junit test for updateEmployee REST API method (negative scenario)")
+    @DisplayName("Junit test for getEmployeeById REST API method (CBOR not modified)")
     @Test
-    public void givenUpdatedEmployee_whenUpdateEmployee_thenReturnEmpty() throws Exception {
+    public void givenCurrentCborETag_whenGetEmployeeById_thenReturnNotModified() throws Exception {
         //given
-        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.empty());
+        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee1.toBuilder().version(3).build()));
+
+        //when
+        ResultActions response = mockMvc.perform(get("/api/employees/{id}", employeeId)
+                .accept("application/cbor")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3-cbor\""));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-cbor\""));
+    }
+
+    @DisplayName("Junit test for getAllEmployees REST API method (not modified)")
+    @Test
+    public void givenCurrentTableETag_whenGetAllEmployees_thenReturnNotModified() throws Exception {
+        //when
+        ResultActions response = mockMvc.perform(get("/api/employees").param("unpaged", "true")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"7\""));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"7\""));
+        verify(employeeService, never()).getAllEmployees();
+    }
+
+    @DisplayName("Junit test for getEmployeesPage REST API method (Smile)")
+    @Test
+    public void givenSmileAccepted_whenGetEmployeesPage_thenReturnSmilePageWithItsOwnETag() throws Exception {
+        //given
+        given(employeeService.getEmployeesPage(null, 50))
+                .willReturn(new EmployeePage(List.of(EmployeeView.of(employee1)), null));
+
+        //when
+        ResultActions response = mockMvc.perform(get("/api/employees")
+                .accept("application/x-jackson-smile")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"7\""));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"7-smile\""));
+    }
+
+    @DisplayName("Junit test for updateEmployee REST API method (matching If-Match version)")
+    @Test
+    public void givenIfMatch_whenUpdateEmployee_thenReturnNewETag() throws Exception {
+        //given
+        given(employeeService.updateEmployee(eq(employeeId), any(Employee.class), eq(3L)))
+                .willAnswer(invocation -> Optional.of(invocation.<Employee>getArgument(1).toBuilder().version(4).build()));
         Employee updatedEmployee = createEmployee("updatedName", "updatedSurname", "updated@gmail.com");
 
         //when
         ResultActions response = mockMvc.perform(put("/api/employees/{id}", employeeId)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(updatedEmployee)));
 
         //then
         response.andDo(print())
-                .andExpect(status().isNotFound());
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.firstName", is(updatedEmployee.getFirstName())));
+        verify(employeeService, never()).updateEmployee(eq(employeeId), any(Employee.class));
     }
 
-    @DisplayName("Junit test for deleteEmployee REST API method")
+    @DisplayName("Junit test for updateEmployee REST API method (stale If-Match version)")
     @Test
-    public void givenEmployeeId_whenDeleteEmployee_thenReturnOk() throws Exception {
+    public void givenStaleIfMatch_whenUpdateEmployee_thenReturnPreconditionFailed() throws Exception {
         //given
-        willDoNothing().given(employeeService).deleteEmployee(anyLong());
+        given(employeeService.updateEmployee(eq(employeeId), any(Employee.class), eq(3L)))
+                .willThrow(new VersionMismatchException("Employee was modified since version 3"));
+        Employee updatedEmployee = createEmployee("updatedName", "updatedSurname", "updated@gmail.com");
 
         //when
-        ResultActions response = mockMvc.perform(delete("/api/employees/{id}", employeeId));
+        ResultActions response = mockMvc.perform(put("/api/employees/{id}", employeeId)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedEmployee)));
 
         //then
         response.andDo(print())
-                .andExpect(status().isOk());
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Override
+    protected WebTestClient webTestClient() {
+        return MockMvcWebTestClient.bindTo(mockMvc).build();
+    }
+
+    @Override
+    protected void givenSaveEmployee() {
+        given(employeeService.saveEmployee(any(Employee.class))).willAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Override
+    protected void givenSaveEmployeeFails(RuntimeException e) {
+        given(employeeService.saveEmployee(any(Employee.class))).willThrow(e);
+    }
+
+    @Override
+    protected void givenSaveEmployeesFailsOnSecondChunk(RuntimeException e) {
+        given(employeeService.saveEmployees(anyList()))
+                .willAnswer(invocation -> invocation.<List<Employee>>getArgument(0).stream()
+                        .map(EmployeeBatchResult::created).toList())
+                .willThrow(e);
+    }
+
+    @Override
+    protected void givenAllEmployees(List<Employee> employees) {
+        given(employeeService.getAllEmployees()).willReturn(employees.stream().map(EmployeeView::of).toList());
+    }
+
+    @Override
+    protected void givenEmployeesPage(String afterCursor, int limit, EmployeePage page) {
+        given(employeeService.getEmployeesPage(afterCursor, limit)).willReturn(page);
+    }
+
+    @Override
+    protected void givenEmployeesPageFails(String afterCursor, int limit, RuntimeException e) {
+        given(employeeService.getEmployeesPage(afterCursor, limit)).willThrow(e);
+    }
+
+    @Override
+    protected void givenEmployee(long id, Optional<Employee> employee) {
+        given(employeeService.getEmployeeById(id)).willReturn(employee);
+    }
+
+    @Override
+    protected void givenUpdateEmployee(long id) {
+        given(employeeService.updateEmployee(eq(id), any(Employee.class)))
+                .willAnswer(invocation -> Optional.of(invocation.getArgument(1)));
+    }
+
+    @Override
+    protected void givenMissingEmployeeOnUpdate(long id) {
+        given(employeeService.updateEmployee(eq(id), any(Employee.class))).willReturn(Optional.empty());
+    }
+
+    @Override
+    protected void givenPatchEmployee(long id, String email, boolean patched) {
+        given(employeeService.patchEmployee(eq(id),
+                argThat(patch -> patch.getFirstName() == null && email.equals(patch.getEmail())))).willReturn(patched);
+    }
+
+    @Override
+    protected void givenDeleteEmployee(long id) {
+        willDoNothing().given(employeeService).deleteEmployee(id);
+    }
+
+    @Override
+    protected void givenDeleteEmployeeFails(long id, RuntimeException e) {
+        willThrow(e).given(employeeService).deleteEmployee(id);
+    }
+
+    @Override
+    protected void givenDeleteEmployees(List<Long> ids, int deleted) {
+        given(employeeService.deleteEmployees(ids)).willReturn(deleted);
     }
 
-    private Employee createEmployee(String firstName, String lastName, String email) {
-        return Employee.builder()
-                .firstName(firstName)
-                .lastName(lastName)
-                .email(email)
-                .build();
+    @Override
+    protected void givenDeleteEmployeesByLastName(String lastName, int deleted) {
+        given(employeeService.deleteEmployeesByLastName(lastName)).willReturn(deleted);
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package latsko.springboottesting.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import latsko.springboottesting.exception.ResourceAlreadyExistsException;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeeIngestStatus;
+import latsko.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeIngestQueueTest {
+
+    @Mock
+    private EmployeeService employeeService;
+
+    @TempDir
+    private Path directory;
+
+    private EmployeeIngestQueue ingestQueue;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        ingestQueue.destroy();
+    }
+
+    @DisplayName("Junit test for coalescing queued employees into one batch")
+    @Test
+    public void givenSeveralSubmits_whenDrained_thenCreateThemInOneBatch() throws Exception {
+        //given
+        AtomicLong ids = new AtomicLong();
+        given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> invocation.<List<Employee>>getArgument(0)
+                .stream()
+                .peek(employee -> employee.setId(ids.incrementAndGet()))
+                .map(EmployeeBatchResult::created)
+                .toList());
+        ingestQueue = ingestQueue(10, Duration.ofMillis(500));
+        ingestQueue.open();
+        ingestQueue.start();
+
+        //when
+        String first = ingestQueue.submit(employee("a@gmail.com")).orElseThrow().getTrackingId();
+        ingestQueue.submit(employee("b@gmail.com"));
+        String last = ingestQueue.submit(employee("c@gmail.com")).orElseThrow().getTrackingId();
+
+        //then
+        assertThat(awaitStatus(last).getStatus()).isEqualTo(EmployeeIngestStatus.Status.CREATED);
+        assertThat(ingestQueue.getStatus(first).orElseThrow().getEmployeeId()).isEqualTo(1L);
+        verify(employeeService, times(1)).saveEmployees(argThat(employees -> employees.size() == 3));
+    }
+
+    @DisplayName("Junit test for submit which rejects employees (queue full)")
+    @Test
+    public void givenFullQueue_whenSubmit_thenReturnEmpty() throws Exception {
+        //given
+        CountDownLatch writing = new CountDownLatch(1);
+        given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> {
+            writing.await();
+            return invocation.<List<Employee>>getArgument(0).stream().map(EmployeeBatchResult::created).toList();
+        });
+        ingestQueue = ingestQueue(1, Duration.ZERO);
+        ingestQueue.open();
+        ingestQueue.start();
+        ingestQueue.submit(employee("a@gmail.com"));
+        verify(employeeService, timeout(1000)).saveEmployees(anyList());
+
+        //when
+        Optional<EmployeeIngestStatus> queued = ingestQueue.submit(employee("b@gmail.com"));
+        Optional<EmployeeIngestStatus> rejected = ingestQueue.submit(employee("c@gmail.com"));
+        writing.countDown();
+
+        //then
+        assertThat(queued).isPresent();
+        assertThat(rejected).isEmpty();
+    }
+
+    @DisplayName("Junit test for falling back to single creates when a batch conflicts")
+    @Test
+    public void givenConcurrentlyCreatedEmail_whenDrained_thenReportConflictForThatEmployeeOnly() throws Exception {
+        //given
+        given(employeeService.saveEmployees(anyList()))
+                .willThrow(new ResourceAlreadyExistsException("Employee with one of the given emails was created concurrently"));
+        given(employeeService.saveEmployee(any(Employee.class))).willAnswer(invocation -> {
+            Employee employee = invocation.getArgument(0);
+            if (employee.getEmail().equals("taken@gmail.com")) {
+                throw new ResourceAlreadyExistsException("Employee already exist with given email: taken@gmail.com");
+            }
+            employee.setId(7L);
+            return employee;
+        });
+        ingestQueue = ingestQueue(10, Duration.ofMillis(200));
+        ingestQueue.open();
+        ingestQueue.start();
+
+        //when
+        String created = ingestQueue.submit(employee("new@gmail.com")).orElseThrow().getTrackingId();
+        String conflict = ingestQueue.submit(employee("taken@gmail.com")).orElseThrow().getTrackingId();
+
+        //then
+        assertThat(awaitStatus(conflict).getStatus()).isEqualTo(EmployeeIngestStatus.Status.CONFLICT);
+        assertThat(awaitStatus(created).getEmployeeId()).isEqualTo(7L);
+    }
+
+    @DisplayName("Junit test for submit before the writer started")
+    @Test
+    public void givenWriterNotStarted_whenSubmit_thenJournalIt() throws Exception {
+        //given
+        ingestQueue = ingestQueue(10, Duration.ZERO);
+        ingestQueue.open();
+
+        //when
+        String trackingId = ingestQueue.submit(employee("a@gmail.com")).orElseThrow().getTrackingId();
+        ingestQueue.destroy();
+
+        //then
+        assertThat(new IngestJournal(directory.resolve("employees.journal"), new ObjectMapper(), Long.MAX_VALUE).open())
+                .containsOnlyKeys(trackingId);
+    }
+
+    private EmployeeIngestQueue ingestQueue(int capacity, Duration linger) {
+        return new EmployeeIngestQueue(employeeService, new ObjectMapper(), directory.resolve("employees.journal"),
+                DataSize.ofMegabytes(1), capacity, 10, linger, Duration.ofMinutes(1), 100,
+                Duration.ofSeconds(1));
+    }
+
+    private EmployeeIngestStatus awaitStatus(String trackingId) throws InterruptedException {
+        for (int i = 0; i < 200 && ingestQueue.getStatus(trackingId).orElseThrow().getStatus()
+                == EmployeeIngestStatus.Status.QUEUED; i++) {
+            Thread.sleep(10);
+        }
+        return ingestQueue.getStatus(trackingId).orElseThrow();
+    }
+
+    private static Employee employee(String email) {
+        return Employee.builder().firstName("John").lastName("Doe").email(email).build();
+    }
+}
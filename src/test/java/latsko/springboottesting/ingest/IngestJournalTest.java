@@ -0,0 +1,131 @@
+package latsko.springboottesting.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import latsko.springboottesting.model.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngestJournalTest {
+
+    @TempDir
+    private Path directory;
+
+    private Path file;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setUp() {
+        file = directory.resolve("ingest/employees.journal");
+        objectMapper = new ObjectMapper();
+    }
+
+    @DisplayName("Junit test for recovering employees that were queued but not done")
+    @Test
+    public void givenQueuedAndDoneEntries_whenReopen_thenRecoverOnlyPending() throws IOException {
+        //given
+        IngestJournal journal = new IngestJournal(file, objectMapper, Long.MAX_VALUE);
+        journal.open();
+        journal.append("a", employee("a@gmail.com"));
+        journal.append("b", employee("b@gmail.com"));
+        journal.append("c", employee("c@gmail.com"));
+        journal.complete(List.of("b"));
+        journal.close();
+
+        //when
+        Map<String, Employee> recovered = new IngestJournal(file, objectMapper, Long.MAX_VALUE).open();
+
+        //then
+        assertThat(recovered).containsOnlyKeys("a", "c");
+        assertThat(recovered.get("c").getEmail()).isEqualTo("c@gmail.com");
+    }
+
+    @DisplayName("Junit test for skipping a line torn by a crash")
+    @Test
+    public void givenTornLastLine_whenReopen_thenIgnoreIt() throws IOException {
+        //given
+        IngestJournal journal = new IngestJournal(file, objectMapper, Long.MAX_VALUE);
+        journal.open();
+        journal.append("a", employee("a@gmail.com"));
+        journal.close();
+        Files.writeString(file, "{\"type\":\"queued\",\"trackingId\":\"b\",\"empl", StandardOpenOption.APPEND);
+
+        //when
+        IngestJournal reopened = new IngestJournal(file, objectMapper, Long.MAX_VALUE);
+        Map<String, Employee> recovered = reopened.open();
+        reopened.append("c", employee("c@gmail.com"));
+        reopened.close();
+
+        //then
+        assertThat(recovered).containsOnlyKeys("a");
+        assertThat(new IngestJournal(file, objectMapper, Long.MAX_VALUE).open()).containsOnlyKeys("a", "c");
+    }
+
+    @DisplayName("Junit test for compacting the journal once it outgrows its limit")
+    @Test
+    public void givenJournalAboveLimit_whenComplete_thenKeepOnlyPending() throws IOException {
+        //given
+        IngestJournal journal = new IngestJournal(file, objectMapper, 1);
+        journal.open();
+        journal.append("a", employee("a@gmail.com"));
+        journal.append("b", employee("b@gmail.com"));
+
+        //when
+        journal.complete(List.of("a"));
+        journal.close();
+
+        //then
+        assertThat(Files.readAllLines(file)).hasSize(1).allMatch(line -> line.contains("b@gmail.com"));
+    }
+
+    @DisplayName("Junit test for one fsync covering the appends written before it")
+    @Test
+    public void givenSeveralAppends_whenSync_thenShareOneForce() throws IOException {
+        //given
+        IngestJournal journal = new IngestJournal(file, objectMapper, Long.MAX_VALUE);
+        journal.open();
+        long first = journal.append("a", employee("a@gmail.com"));
+        long last = journal.append("b", employee("b@gmail.com"));
+
+        //when
+        journal.sync(last);
+        journal.sync(first);
+        journal.close();
+
+        //then
+        assertThat(journal.syncs()).isEqualTo(1);
+        assertThat(new IngestJournal(file, objectMapper, Long.MAX_VALUE).open()).containsOnlyKeys("a", "b");
+    }
+
+    @DisplayName("Junit test for sync after complete forced the appends already")
+    @Test
+    public void givenComplete_whenSyncEarlierAppend_thenSkipForce() throws IOException {
+        //given
+        IngestJournal journal = new IngestJournal(file, objectMapper, Long.MAX_VALUE);
+        journal.open();
+        long position = journal.append("a", employee("a@gmail.com"));
+        journal.append("b", employee("b@gmail.com"));
+        journal.complete(List.of("b"));
+
+        //when
+        journal.sync(position);
+        journal.close();
+
+        //then
+        assertThat(journal.syncs()).isZero();
+    }
+
+    private static Employee employee(String email) {
+        return Employee.builder().firstName("John").lastName("Doe").email(email).build();
+    }
+}
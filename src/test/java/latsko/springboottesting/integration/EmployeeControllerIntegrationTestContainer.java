@@ -1,14 +1,20 @@
 package latsko.springboottesting.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import latsko.springboottesting.cache.EmployeeCache;
 import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeChanges;
 import latsko.springboottesting.repository.EmployeeRepository;
+import latsko.springboottesting.sql.RecordSqlStatements;
+import latsko.springboottesting.sql.SqlStatementRecorder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -16,14 +22,21 @@ import org.springframework.test.web.servlet.ResultActions;
 import java.util.ArrayList;
 import java.util.List;
 
+import static latsko.springboottesting.sql.SqlStatementRecorder.Type.DELETE;
+import static latsko.springboottesting.sql.SqlStatementRecorder.Type.INSERT;
+import static latsko.springboottesting.sql.SqlStatementRecorder.Type.SELECT;
+import static latsko.springboottesting.sql.SqlStatementRecorder.Type.UPDATE;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
+@RecordSqlStatements
 public class EmployeeControllerIntegrationTestContainer extends AbstractContainerBaseTest {
 
     @Autowired
@@ -32,8 +45,14 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private EmployeeCache employeeCache;
+
     @Autowired
     private ObjectMapper objectMapper;
+
+    @Autowired
+    private SqlStatementRecorder sqlStatements;
     private Employee employee1;
     private Employee employee2;
     private long employeeId;
@@ -41,6 +60,7 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
     @BeforeEach
     void setup() {
         employeeRepository.deleteAll();
+        employeeCache.invalidateAll();
         employeeId = 1L;
         employee1 = createEmployee("Name1", "Surname1", "email1@gmail.com");
         employee2 = createEmployee("Name2", "Surname2", "email2@gmail.com");
@@ -51,6 +71,7 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
     @Test
     public void givenEmployeeObject_whenCreateEmployee_thenReturnSavedEmployee() throws Exception {
         //given
+        sqlStatements.reset();
 
         //when
         ResultActions response = mockMvc.perform(post("/api/employees")
@@ -63,6 +84,34 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
                 .andExpect(jsonPath("$.firstName", is(employee1.getFirstName())))
                 .andExpect(jsonPath("$.lastName", is(employee1.getLastName())))
                 .andExpect(jsonPath("$.email", is(employee1.getEmail())));
+        assertThat(sqlStatements.count(INSERT, "employees")).isEqualTo(1);
+        assertThat(sqlStatements.count(SELECT, "employees")).isZero();
+    }
+
+    @DisplayName("Integration test for createEmployees batch REST API method")
+    @Test
+    public void givenEmployeeArray_whenCreateEmployees_thenInsertInJdbcBatches() throws Exception {
+        //given
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            employees.add(createEmployee("Name" + i, "Surname" + i, "batch" + i + "@gmail.com"));
+        }
+        sqlStatements.reset();
+
+        //when
+        ResultActions response = mockMvc.perform(post("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employees)));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(employees.size())));
+        // one existence lookup per chunk, inserts only as batches of hibernate.jdbc.batch_size (50)
+        assertThat(sqlStatements.count(SELECT, "employees")).isEqualTo(1);
+        assertThat(sqlStatements.count(INSERT, "employees")).isZero();
+        assertThat(sqlStatements.batches(INSERT, "employees")).isLessThanOrEqualTo(500 / 50);
+        assertThat(sqlStatements.batchedRows(INSERT, "employees")).isEqualTo(500);
     }
 
     @DisplayName("Integration test for getAllEmployees REST API method")
@@ -75,7 +124,7 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
         employeeRepository.saveAll(listOfEmployees);
 
         //when
-        ResultActions response = mockMvc.perform(get("/api/employees"));
+        ResultActions response = mockMvc.perform(get("/api/employees").param("unpaged", "true"));
 
         //then
         response.andDo(print())
@@ -83,11 +132,44 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
                 .andExpect(jsonPath("$.size()", is(listOfEmployees.size())));
     }
 
+    @DisplayName("Integration test for getEmployeesPage REST API method")
+    @Test
+    public void givenListOfEmployees_whenGetEmployeesPage_thenReturnPagesInIdOrder() throws Exception {
+        //given
+        employeeRepository.saveAll(List.of(employee1, employee2));
+        sqlStatements.reset();
+
+        //when
+        ResultActions firstPage = mockMvc.perform(get("/api/employees").param("limit", "1"));
+        long firstPageSelects = sqlStatements.count(SELECT);
+
+        //then
+        String nextCursor = JsonPath.read(firstPage.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(1)))
+                .andExpect(jsonPath("$.content[0].email", is(employee1.getEmail())))
+                .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+        assertThat(firstPageSelects).isEqualTo(1);
+
+        //when
+        ResultActions secondPage = mockMvc.perform(get("/api/employees")
+                .param("after", nextCursor)
+                .param("limit", "1"));
+
+        //then
+        secondPage.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()", is(1)))
+                .andExpect(jsonPath("$.content[0].email", is(employee2.getEmail())))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
     @DisplayName("Integration test for getEmployeeById REST API method (positive scenario)")
     @Test
     public void givenEmployeeId_whenGetEmployeeById_thenReturnEmployeeObject() throws Exception {
         //given
         employeeRepository.save(employee1);
+        sqlStatements.reset();
 
         //when
         ResultActions response = mockMvc.perform(get("/api/employees/{id}", employee1.getId()));
@@ -98,6 +180,11 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
                 .andExpect(jsonPath("$.firstName", is(employee1.getFirstName())))
                 .andExpect(jsonPath("$.lastName", is(employee1.getLastName())))
                 .andExpect(jsonPath("$.email", is(employee1.getEmail())));
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(1);
+        // served from the employee cache the second time
+        mockMvc.perform(get("/api/employees/{id}", employee1.getId()))
+                .andExpect(status().isOk());
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(1);
     }
 
     @DisplayName("Integration test for getEmployeeById REST API method (negative scenario)")
@@ -120,6 +207,7 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
         //given
         employeeRepository.save(employee1);
         Employee updatedEmployee = createEmployee("updatedName", "updatedSurname", "updated@gmail.com");
+        sqlStatements.reset();
 
         //when
         ResultActions response = mockMvc.perform(put("/api/employees/{id}", employee1.getId())
@@ -132,6 +220,8 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
                 .andExpect(jsonPath("$.firstName", is(updatedEmployee.getFirstName())))
                 .andExpect(jsonPath("$.lastName", is(updatedEmployee.getLastName())))
                 .andExpect(jsonPath("$.email", is(updatedEmployee.getEmail())));
+        assertThat(sqlStatements.count(UPDATE, "employees")).isEqualTo(1);
+        assertThat(sqlStatements.count(SELECT)).isZero();
     }
 
     @DisplayName("Integration test for updateEmployee REST API method (negative scenario)")
@@ -151,11 +241,83 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
                 .andExpect(status().isNotFound());
     }
 
+    @DisplayName("Integration test for updateEmployee REST API method (lost update)")
+    @Test
+    public void givenConcurrentUpdates_whenUpdateEmployeeWithIfMatch_thenRejectTheStaleOne() throws Exception {
+        //given
+        employeeRepository.save(employee1);
+        String eTag = mockMvc.perform(get("/api/employees/{id}", employee1.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Employee firstUpdate = createEmployee("firstName", "firstSurname", "first@gmail.com");
+        Employee secondUpdate = createEmployee("secondName", "secondSurname", "second@gmail.com");
+
+        //when
+        ResultActions first = mockMvc.perform(put("/api/employees/{id}", employee1.getId())
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(firstUpdate)));
+        ResultActions second = mockMvc.perform(put("/api/employees/{id}", employee1.getId())
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(secondUpdate)));
+
+        //then
+        String newETag = first.andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(newETag).isNotEqualTo(eTag);
+        second.andDo(print())
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/api/employees/{id}", employee1.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, newETag))
+                .andExpect(status().isNotModified());
+    }
+
+    @DisplayName("Integration test for getAllEmployees REST API method (not modified)")
+    @Test
+    public void givenUnchangedTable_whenGetAllEmployees_thenReturnNotModifiedWithoutReadingRows() throws Exception {
+        //given
+        employeeRepository.saveAll(List.of(employee1, employee2));
+        String eTag = mockMvc.perform(get("/api/employees").param("unpaged", "true"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        sqlStatements.reset();
+
+        //when
+        ResultActions response = mockMvc.perform(get("/api/employees").param("unpaged", "true")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        assertThat(sqlStatements.count(SELECT, "employees")).isZero();
+    }
+
+    @DisplayName("Integration test for patchEmployee REST API method")
+    @Test
+    public void givenPartialEmployee_whenPatchEmployee_thenUpdateOnlyGivenFields() throws Exception {
+        //given
+        employeeRepository.save(employee1);
+
+        //when
+        ResultActions response = mockMvc.perform(patch("/api/employees/{id}", employee1.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"lastName\":\"patchedSurname\"}"));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/employees/{id}", employee1.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName", is(employee1.getFirstName())))
+                .andExpect(jsonPath("$.lastName", is("patchedSurname")));
+    }
+
     @DisplayName("Integration test for deleteEmployee REST API method")
     @Test
     public void givenEmployeeId_whenDeleteEmployee_thenReturnOk() throws Exception {
         //given
         employeeRepository.save(employee1);
+        sqlStatements.reset();
 
         //when
         ResultActions response = mockMvc.perform(delete("/api/employees/{id}", employee1.getId()));
@@ -163,6 +325,88 @@ public class EmployeeControllerIntegrationTestContainer extends AbstractContaine
         //then
         response.andDo(print())
                 .andExpect(status().isOk());
+        assertThat(sqlStatements.count(DELETE, "employees")).isEqualTo(1);
+        assertThat(sqlStatements.count(SELECT)).isZero();
+    }
+
+    @DisplayName("Integration test for deleteEmployee REST API method (negative scenario)")
+    @Test
+    public void givenInvalidEmployeeId_whenDeleteEmployee_thenReturnNotFound() throws Exception {
+        //given
+        employeeRepository.save(employee1);
+
+        //when
+        ResultActions response = mockMvc.perform(delete("/api/employees/{id}", employee1.getId() + 1));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
+    @DisplayName("Integration test for deleteEmployees bulk REST API method")
+    @Test
+    public void givenEmployees_whenDeleteEmployeesByIds_thenDeleteAllGiven() throws Exception {
+        //given
+        employeeRepository.saveAll(List.of(employee1, employee2));
+        sqlStatements.reset();
+
+        //when
+        ResultActions response = mockMvc.perform(delete("/api/employees")
+                .param("ids", employee1.getId() + "," + employee2.getId()));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isOk());
+        assertThat(sqlStatements.count(DELETE, "employees")).isEqualTo(1);
+        mockMvc.perform(get("/api/employees/{id}", employee1.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @DisplayName("Integration test for getChanges REST API method")
+    @Test
+    public void givenSyncedClient_whenEmployeesChange_thenChangesReturnOnlyWhatChangedSinceToken() throws Exception {
+        //given
+        for (Employee employee : List.of(employee1, employee2)) {
+            mockMvc.perform(post("/api/employees")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(employee)))
+                    .andExpect(status().isCreated());
+        }
+        long id1 = employeeRepository.findByEmail(employee1.getEmail()).orElseThrow().getId();
+        long id2 = employeeRepository.findByEmail(employee2.getEmail()).orElseThrow().getId();
+        // a full sync from the start, tombstones left by other tests included
+        String token = EmployeeChanges.encodeToken(EmployeeChanges.Token.START);
+        boolean hasMore = true;
+        while (hasMore) {
+            String body = mockMvc.perform(get("/api/employees/changes").param("since", token).param("limit", "1000"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            token = JsonPath.read(body, "$.nextToken");
+            hasMore = JsonPath.read(body, "$.hasMore");
+        }
+        mockMvc.perform(put("/api/employees/{id}", id1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                createEmployee("updatedName", "updatedSurname", "updated@gmail.com"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/employees/{id}", id2))
+                .andExpect(status().isOk());
+        sqlStatements.reset();
+
+        //when
+        ResultActions response = mockMvc.perform(get("/api/employees/changes").param("since", token));
+
+        //then
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes.size()", is(2)))
+                .andExpect(jsonPath("$.changes[0].id", is((int) id1)))
+                .andExpect(jsonPath("$.changes[0].email", is("updated@gmail.com")))
+                .andExpect(jsonPath("$.changes[1].id", is((int) id2)))
+                .andExpect(jsonPath("$.changes[1].deleted", is(true)))
+                .andExpect(jsonPath("$.hasMore", is(false)));
+        // one index seek on the change log, joined to the rows that are still there
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(1);
     }
 
     private Employee createEmployee(String firstName, String lastName, String email) {
@@ -0,0 +1,104 @@
+package latsko.springboottesting.integration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.repository.EmployeeRepository;
+import latsko.springboottesting.service.EmployeeService;
+import latsko.springboottesting.sql.RecordSqlStatements;
+import latsko.springboottesting.sql.SqlStatementRecorder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static latsko.springboottesting.sql.SqlStatementRecorder.Type.SELECT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@RecordSqlStatements
+public class EmployeeSecondLevelCacheIntegrationTestContainer extends AbstractContainerBaseTest {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private SqlStatementRecorder sqlStatements;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Employee employee;
+
+    @BeforeEach
+    void setup() {
+        employeeRepository.deleteAll();
+        employee = employeeService.saveEmployee(createEmployee("John", "Doe", "simple@gmail.com"));
+    }
+
+    @DisplayName("Integration test for cacheable JPQL finder served from the query cache")
+    @Test
+    public void givenEmployee_whenFindByJPQLTwice_thenSecondCallIssuesNoSelect() {
+        //given
+        sqlStatements.reset();
+
+        //when
+        Employee first = employeeRepository.findByJPQL("John", "Doe");
+        long selectsAfterFirstCall = sqlStatements.count(SELECT);
+        Employee second = employeeRepository.findByJPQLNamedParams("John", "Doe");
+        Employee third = employeeRepository.findByJPQL("John", "Doe");
+
+        //then
+        assertThat(first.getId()).isEqualTo(employee.getId());
+        assertThat(second.getId()).isEqualTo(employee.getId());
+        assertThat(third.getId()).isEqualTo(employee.getId());
+        assertThat(selectsAfterFirstCall).isEqualTo(1);
+        // the named-params finder is a different query, the repeated one is served from the cache
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(2);
+        assertThat(meterRegistry.find("hibernate.cache.query.requests").tag("result", "hit").functionCounter())
+                .isNotNull();
+    }
+
+    @DisplayName("Integration test for cached finder invalidated by an update through the service")
+    @Test
+    public void givenCachedFinderResult_whenUpdateEmployee_thenFinderSeesTheUpdate() {
+        //given
+        employeeRepository.findByJPQL("John", "Doe");
+        employeeRepository.findByEmail("simple@gmail.com");
+
+        //when
+        employeeService.updateEmployee(employee.getId(), createEmployee("Jack", "Doe", "changed@gmail.com"));
+
+        //then
+        assertThat(employeeRepository.findByJPQL("John", "Doe")).isNull();
+        assertThat(employeeRepository.findByJPQL("Jack", "Doe").getEmail()).isEqualTo("changed@gmail.com");
+        assertThat(employeeRepository.findByEmail("simple@gmail.com")).isEmpty();
+    }
+
+    @DisplayName("Integration test for cached finder invalidated by a delete through the service")
+    @Test
+    public void givenCachedFinderResult_whenDeleteEmployees_thenFinderSeesTheDelete() {
+        //given
+        employeeRepository.findByEmail("simple@gmail.com");
+
+        //when
+        employeeService.deleteEmployees(List.of(employee.getId()));
+
+        //then
+        assertThat(employeeRepository.findByEmail("simple@gmail.com")).isEmpty();
+        assertThat(employeeRepository.findByJPQL("John", "Doe")).isNull();
+    }
+
+    private Employee createEmployee(String firstName, String lastName, String email) {
+        return Employee.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(email)
+                .build();
+    }
+}
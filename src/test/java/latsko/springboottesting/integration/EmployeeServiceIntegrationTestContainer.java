@@ -0,0 +1,87 @@
+package latsko.springboottesting.integration;
+
+import latsko.springboottesting.exception.ResourceAlreadyExistsException;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.repository.EmployeeRepository;
+import latsko.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class EmployeeServiceIntegrationTestContainer extends AbstractContainerBaseTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @BeforeEach
+    void setup() {
+        employeeRepository.deleteAll();
+    }
+
+    @DisplayName("Integration test for saveEmployee method with the same email from many threads")
+    @Test
+    public void givenSameEmailFromManyThreads_whenSaveEmployee_thenExactlyOneIsCreatedPerEmail() throws Exception {
+        //given
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                String email = "duplicate" + round + "@gmail.com";
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+
+                //when
+                for (int i = 0; i < THREADS; i++) {
+                    Employee employee = Employee.builder()
+                            .firstName("Name" + i)
+                            .lastName("Surname" + i)
+                            .email(email)
+                            .build();
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            employeeService.saveEmployee(employee);
+                            created.incrementAndGet();
+                        } catch (ResourceAlreadyExistsException e) {
+                            conflicts.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //then
+        assertThat(created).hasValue(ROUNDS);
+        assertThat(conflicts).hasValue(ROUNDS * (THREADS - 1));
+        assertThat(employeeRepository.count()).isEqualTo(ROUNDS);
+    }
+}
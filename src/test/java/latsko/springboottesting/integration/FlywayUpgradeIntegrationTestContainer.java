@@ -0,0 +1,116 @@
+package latsko.springboottesting.integration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// a database as ddl-auto=update left it before the migrations existed, upgraded the way the application does it
+public class FlywayUpgradeIntegrationTestContainer {
+
+    static final MySQLContainer MY_SQL_CONTAINER;
+
+    static {
+        MY_SQL_CONTAINER = new MySQLContainer("mysql:latest")
+                .withUsername("username")
+                .withPassword("password")
+                .withDatabaseName("ems");
+
+        MY_SQL_CONTAINER.start();
+    }
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        execute("drop table if exists flyway_schema_history, employee_changes, employees_version, employees_seq, " +
+                "employees");
+        execute("create table employees (id bigint not null auto_increment, email varchar(255) not null, " +
+                "first_name varchar(255) not null, last_name varchar(255) not null, primary key (id)) engine = InnoDB");
+    }
+
+    @DisplayName("Integration test for migrating a baselined schema")
+    @Test
+    public void givenBaselinedSchema_whenMigrate_thenEnforceUniqueEmailAndAlignSequence() throws SQLException {
+        //given
+        execute("insert into employees (first_name, last_name, email) values " +
+                "('Dave', 'Johnson', 'address1@gmail.com'), ('Mike', 'Tyson', 'address2@gmail.com')");
+
+        //when
+        flyway().migrate();
+
+        //then
+        assertThat(query("select count(*) from information_schema.table_constraints where table_schema = database() " +
+                "and table_name = 'employees' and constraint_name = 'uk_employees_email'")).isEqualTo(1);
+        assertThat(query("select next_val from employees_seq")).isEqualTo(3);
+        assertThat(query("select count(*) from employee_changes")).isEqualTo(2);
+        assertThatThrownBy(() -> execute("insert into employees (id, first_name, last_name, email) " +
+                "values (3, 'Cassius', 'Clay', 'address1@gmail.com')"))
+                .isInstanceOf(SQLIntegrityConstraintViolationException.class)
+                .hasMessageContaining("uk_employees_email");
+    }
+
+    @DisplayName("Integration test for migrating a baselined schema that has the email constraint")
+    @Test
+    public void givenBaselinedSchemaWithEmailConstraint_whenMigrate_thenKeepSingleUniqueIndex() throws SQLException {
+        //given
+        execute("alter table employees add constraint uk_employees_email unique (email)");
+
+        //when
+        flyway().migrate();
+
+        //then
+        assertThat(query("select count(*) from information_schema.statistics where table_schema = database() " +
+                "and table_name = 'employees' and column_name = 'email' and non_unique = 0")).isEqualTo(1);
+    }
+
+    @DisplayName("Integration test for migrating a baselined schema with duplicate emails")
+    @Test
+    public void givenDuplicateEmails_whenMigrate_thenFail() throws SQLException {
+        //given
+        execute("insert into employees (first_name, last_name, email) values " +
+                "('Dave', 'Johnson', 'address1@gmail.com'), ('Mike', 'Tyson', 'address1@gmail.com')");
+
+        //when, then
+        assertThatThrownBy(() -> flyway().migrate()).isInstanceOf(FlywayException.class);
+    }
+
+    // the settings of application.properties
+    private static Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(MY_SQL_CONTAINER.getJdbcUrl(), MY_SQL_CONTAINER.getUsername(),
+                        MY_SQL_CONTAINER.getPassword())
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = connection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long query(String sql) throws SQLException {
+        try (Connection connection = connection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static Connection connection() throws SQLException {
+        return DriverManager.getConnection(MY_SQL_CONTAINER.getJdbcUrl(), MY_SQL_CONTAINER.getUsername(),
+                MY_SQL_CONTAINER.getPassword());
+    }
+}
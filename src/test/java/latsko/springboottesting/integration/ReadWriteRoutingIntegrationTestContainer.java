@@ -0,0 +1,155 @@
+package latsko.springboottesting.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import latsko.springboottesting.cache.EmployeeCache;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeView;
+import latsko.springboottesting.service.EmployeeService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.MySQLContainer;
+
+import jakarta.servlet.http.Cookie;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// a second, unreplicated MySQL container stands in for the replica, so every row shows where it was read from
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+public class ReadWriteRoutingIntegrationTestContainer extends AbstractContainerBaseTest {
+
+    static final MySQLContainer REPLICA_CONTAINER;
+
+    static {
+        REPLICA_CONTAINER = new MySQLContainer("mysql:latest")
+                .withUsername("username")
+                .withPassword("password")
+                .withDatabaseName("ems");
+
+        REPLICA_CONTAINER.start();
+        Flyway.configure()
+                .dataSource(REPLICA_CONTAINER.getJdbcUrl(), REPLICA_CONTAINER.getUsername(),
+                        REPLICA_CONTAINER.getPassword())
+                .load()
+                .migrate();
+    }
+
+    @DynamicPropertySource
+    public static void replicaPropertySource(DynamicPropertyRegistry registry) {
+        registry.add("employees.datasource.replicas.urls", REPLICA_CONTAINER::getJdbcUrl);
+        registry.add("employees.datasource.replicas.username", REPLICA_CONTAINER::getUsername);
+        registry.add("employees.datasource.replicas.password", REPLICA_CONTAINER::getPassword);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        execute(MY_SQL_CONTAINER, "delete from employees");
+        execute(REPLICA_CONTAINER, "delete from employees");
+        employeeCache.invalidateAll();
+    }
+
+    @DisplayName("Integration test for getAllEmployees reading from the replica")
+    @Test
+    public void givenRowOnlyOnReplica_whenGetAllEmployees_thenReturnIt() throws SQLException {
+        //given
+        execute(REPLICA_CONTAINER, "insert into employees (id, first_name, last_name, email) "
+                + "values (1, 'Replica', 'Only', 'replica@gmail.com')");
+
+        //when
+        List<EmployeeView> employees = employeeService.getAllEmployees();
+
+        //then
+        assertThat(employees).extracting(EmployeeView::email).containsExactly("replica@gmail.com");
+    }
+
+    @DisplayName("Integration test for saveEmployee writing to the primary")
+    @Test
+    public void givenEmployeeObject_whenSaveEmployee_thenWriteToPrimaryOnly() throws SQLException {
+        //when
+        employeeService.saveEmployee(createEmployee("Name1", "Surname1", "email1@gmail.com"));
+
+        //then
+        assertThat(count(MY_SQL_CONTAINER)).isEqualTo(1);
+        assertThat(count(REPLICA_CONTAINER)).isZero();
+    }
+
+    @DisplayName("Integration test for reads following a write going to the primary")
+    @Test
+    public void givenRecentWrite_whenGetAllEmployees_thenReadYourWrites() throws Exception {
+        //given
+        Cookie primaryUntil = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createEmployee("Name1", "Surname1", "email1@gmail.com"))))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getCookie("employees-primary-until");
+
+        //when, then
+        assertThat(primaryUntil).isNotNull();
+        mockMvc.perform(get("/api/employees").param("unpaged", "true").cookie(primaryUntil))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+        mockMvc.perform(get("/api/employees").param("unpaged", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    private static void execute(MySQLContainer container, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(container.getJdbcUrl(), container.getUsername(),
+                container.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    private static long count(MySQLContainer container) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(container.getJdbcUrl(), container.getUsername(),
+                container.getPassword());
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select count(*) from employees")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private Employee createEmployee(String firstName, String lastName, String email) {
+        return Employee.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(email)
+                .build();
+    }
+}
@@ -0,0 +1,135 @@
+package latsko.springboottesting.reactive;
+
+import latsko.springboottesting.contoller.AbstractEmployeeControllerTest;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeePage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+
+@WebFluxTest(controllers = ReactiveEmployeeController.class)
+@ActiveProfiles("reactive")
+class ReactiveEmployeeControllerTest extends AbstractEmployeeControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveEmployeeService employeeService;
+
+    @DisplayName("Junit test for reactive exportEmployees REST API method")
+    @Test
+    public void givenEmployees_whenExportEmployees_thenStreamNdjson() {
+        //given
+        given(employeeService.getAllEmployees()).willReturn(Flux.just(employee1, employee2));
+
+        //when
+        WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange();
+
+        //then
+        response.expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Employee.class).hasSize(2);
+    }
+
+    @Override
+    protected WebTestClient webTestClient() {
+        return webTestClient;
+    }
+
+    @Override
+    protected void givenSaveEmployee() {
+        given(employeeService.saveEmployee(any(Employee.class)))
+                .willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    }
+
+    @Override
+    protected void givenSaveEmployeeFails(RuntimeException e) {
+        given(employeeService.saveEmployee(any(Employee.class))).willReturn(Mono.error(e));
+    }
+
+    @Override
+    protected void givenSaveEmployeesFailsOnSecondChunk(RuntimeException e) {
+        given(employeeService.saveEmployees(anyList()))
+                .willAnswer(invocation -> Flux.fromIterable(invocation.<List<Employee>>getArgument(0))
+                        .map(EmployeeBatchResult::created))
+                .willReturn(Flux.error(e));
+    }
+
+    @Override
+    protected void givenAllEmployees(List<Employee> employees) {
+        given(employeeService.getAllEmployees()).willReturn(Flux.fromIterable(employees));
+    }
+
+    @Override
+    protected void givenEmployeesPage(String afterCursor, int limit, EmployeePage page) {
+        given(employeeService.getEmployeesPage(afterCursor, limit)).willReturn(Mono.just(page));
+    }
+
+    @Override
+    protected void givenEmployeesPageFails(String afterCursor, int limit, RuntimeException e) {
+        given(employeeService.getEmployeesPage(afterCursor, limit)).willReturn(Mono.error(e));
+    }
+
+    @Override
+    protected void givenEmployee(long id, Optional<Employee> employee) {
+        given(employeeService.getEmployeeById(id)).willReturn(Mono.justOrEmpty(employee));
+    }
+
+    @Override
+    protected void givenUpdateEmployee(long id) {
+        given(employeeService.updateEmployee(eq(id), any(Employee.class)))
+                .willAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+    }
+
+    @Override
+    protected void givenMissingEmployeeOnUpdate(long id) {
+        given(employeeService.updateEmployee(eq(id), any(Employee.class))).willReturn(Mono.empty());
+    }
+
+    @Override
+    protected void givenPatchEmployee(long id, String email, boolean patched) {
+        given(employeeService.patchEmployee(eq(id),
+                argThat(patch -> patch.getFirstName() == null && email.equals(patch.getEmail()))))
+                .willReturn(Mono.just(patched));
+    }
+
+    @Override
+    protected void givenDeleteEmployee(long id) {
+        given(employeeService.deleteEmployee(id)).willReturn(Mono.empty());
+    }
+
+    @Override
+    protected void givenDeleteEmployeeFails(long id, RuntimeException e) {
+        given(employeeService.deleteEmployee(id)).willReturn(Mono.error(e));
+    }
+
+    @Override
+    protected void givenDeleteEmployees(List<Long> ids, int deleted) {
+        given(employeeService.deleteEmployees(ids)).willReturn(Mono.just((long) deleted));
+    }
+
+    @Override
+    protected void givenDeleteEmployeesByLastName(String lastName, int deleted) {
+        given(employeeService.deleteEmployeesByLastName(lastName)).willReturn(Mono.just((long) deleted));
+    }
+}
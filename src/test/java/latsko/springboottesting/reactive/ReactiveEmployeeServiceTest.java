@@ -0,0 +1,255 @@
+package latsko.springboottesting.reactive;
+
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import latsko.springboottesting.exception.InvalidCursorException;
+import latsko.springboottesting.exception.ResourceAlreadyExistsException;
+import latsko.springboottesting.exception.ResourceNotFoundException;
+import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeView;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveEmployeeServiceTest {
+
+    @Mock
+    private ReactiveEmployeeRepository employeeRepository;
+    @Mock
+    private TransactionalOperator transactionalOperator;
+    @InjectMocks
+    private ReactiveEmployeeServiceImpl employeeService;
+    private Employee employee;
+
+    @BeforeEach
+    public void setUp() {
+        employee = Employee.builder()
+                .firstName("John")
+                .lastName("Doe")
+                .email("simple@gmail.com")
+                .build();
+    }
+
+    @DisplayName("Junit test for reactive saveEmployee method")
+    @Test
+    public void givenEmployeeObject_whenSaveEmployee_thenReturnEmployeeWithAllocatedId() {
+        //given
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeRepository.nextIds(1)).willReturn(Mono.just(51L));
+        given(employeeRepository.insert(employee)).willReturn(Mono.just(employee));
+        given(employeeRepository.incrementTableVersion()).willReturn(Mono.just(1L));
+        given(employeeRepository.insertChanges(List.of(51L))).willReturn(Mono.just(1L));
+
+        //when
+        Mono<Employee> savedEmployee = employeeService.saveEmployee(employee);
+
+        //then
+        StepVerifier.create(savedEmployee)
+                .assertNext(saved -> assertThat(saved.getId()).isEqualTo(51L))
+                .verifyComplete();
+    }
+
+    @DisplayName("Junit test for reactive saveEmployee method which throws exception")
+    @Test
+    public void givenExistingEmail_whenSaveEmployee_thenThrowException() {
+        //given
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeRepository.nextIds(1)).willReturn(Mono.just(51L));
+        given(employeeRepository.insert(employee)).willReturn(Mono.error(duplicateKey(
+                "employees." + Employee.EMAIL_UNIQUE_CONSTRAINT)));
+
+        //when
+        Mono<Employee> savedEmployee = employeeService.saveEmployee(employee);
+
+        //then
+        StepVerifier.create(savedEmployee)
+                .expectErrorSatisfies(e -> assertThat(e).isInstanceOf(ResourceAlreadyExistsException.class)
+                        .hasMessage("Employee already exist with given email: simple@gmail.com"))
+                .verify();
+    }
+
+    @DisplayName("Junit test for reactive saveEmployee method (duplicate key other than the email)")
+    @Test
+    public void givenDuplicatePrimaryKey_whenSaveEmployee_thenKeepDataAccessException() {
+        //given
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeRepository.nextIds(1)).willReturn(Mono.just(51L));
+        // the email constraint is only mentioned in the entry, not as the violated key
+        given(employeeRepository.insert(employee)).willReturn(Mono.error(new DuplicateKeyException(
+                "Duplicate entry '51' for key 'employees.PRIMARY' (" + Employee.EMAIL_UNIQUE_CONSTRAINT + ")",
+                new R2dbcDataIntegrityViolationException("Duplicate entry '51' for key 'employees.PRIMARY'",
+                        "23000", 1062))));
+
+        //when
+        Mono<Employee> savedEmployee = employeeService.saveEmployee(employee);
+
+        //then
+        StepVerifier.create(savedEmployee)
+                .expectError(DuplicateKeyException.class)
+                .verify();
+    }
+
+    @DisplayName("Junit test for reactive saveEmployees method")
+    @Test
+    public void givenEmployeeBatch_whenSaveEmployees_thenInsertOnlyNewEmails() {
+        //given
+        Employee existing = Employee.builder().firstName("Jane").lastName("Doe").email("jane@gmail.com").build();
+        Employee another = Employee.builder().firstName("Jim").lastName("Doe").email("jim@gmail.com").build();
+        given(transactionalOperator.transactional(any(Flux.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeRepository.findExistingEmails(List.of("jane@gmail.com", "simple@gmail.com", "jim@gmail.com")))
+                .willReturn(Flux.just("jane@gmail.com"));
+        given(employeeRepository.nextIds(2)).willReturn(Mono.just(7L));
+        given(employeeRepository.insert(any(Employee.class)))
+                .willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        given(employeeRepository.incrementTableVersion()).willReturn(Mono.just(1L));
+        given(employeeRepository.insertChanges(List.of(7L, 8L))).willReturn(Mono.just(2L));
+
+        //when
+        Flux<EmployeeBatchResult> results = employeeService.saveEmployees(List.of(existing, employee, another));
+
+        //then
+        StepVerifier.create(results.map(EmployeeBatchResult::getStatus))
+                .expectNext(EmployeeBatchResult.Status.CONFLICT, EmployeeBatchResult.Status.CREATED,
+                        EmployeeBatchResult.Status.CREATED)
+                .verifyComplete();
+        // one block of ids for the chunk
+        verify(employeeRepository).nextIds(2);
+        assertThat(List.of(employee.getId(), another.getId())).containsExactly(7L, 8L);
+        verify(employeeRepository).insertChanges(List.of(7L, 8L));
+    }
+
+    @DisplayName("Junit test for reactive getEmployeesPage method")
+    @Test
+    public void givenMoreEmployeesThanLimit_whenGetEmployeesPage_thenReturnPageWithNextCursor() {
+        //given
+        Employee employee2 = Employee.builder().id(2L).email("jane@gmail.com").build();
+        employee.setId(1L);
+        given(employeeRepository.findByIdGreaterThan(0L, 2)).willReturn(Flux.just(employee, employee2));
+
+        //when
+        StepVerifier.create(employeeService.getEmployeesPage(null, 1))
+
+        //then
+                .assertNext(page -> {
+                    assertThat(page.getContent()).containsExactly(EmployeeView.of(employee));
+                    assertThat(page.getNextCursor()).isNotNull();
+                })
+                .verifyComplete();
+    }
+
+    @DisplayName("Junit test for reactive getEmployeesPage method (invalid cursor)")
+    @Test
+    public void givenInvalidCursor_whenGetEmployeesPage_thenThrowException() {
+        //when
+        StepVerifier.create(employeeService.getEmployeesPage("not-a-cursor", 10))
+
+        //then
+                .expectError(InvalidCursorException.class)
+                .verify();
+    }
+
+    @DisplayName("Junit test for reactive updateEmployee method (missing id)")
+    @Test
+    public void givenMissingId_whenUpdateEmployee_thenReturnEmpty() {
+        //given
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeRepository.update(1L, "John", "Doe", "simple@gmail.com")).willReturn(Mono.just(0L));
+
+        //when
+        StepVerifier.create(employeeService.updateEmployee(1L, employee))
+
+        //then
+                .verifyComplete();
+    }
+
+    @DisplayName("Junit test for reactive patchEmployee method")
+    @Test
+    public void givenExistingId_whenPatchEmployee_thenBumpTableVersion() {
+        //given
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeRepository.patch(1L, "John", "Doe", "simple@gmail.com")).willReturn(Mono.just(1L));
+        given(employeeRepository.incrementTableVersion()).willReturn(Mono.just(1L));
+        given(employeeRepository.stampChanges(List.of(1L))).willReturn(Mono.just(1L));
+
+        //when
+        StepVerifier.create(employeeService.patchEmployee(1L, employee))
+
+        //then
+                .expectNext(true)
+                .verifyComplete();
+        verify(employeeRepository).incrementTableVersion();
+        verify(employeeRepository, never()).insertChanges(any());
+    }
+
+    @DisplayName("Junit test for reactive deleteEmployee method (missing id)")
+    @Test
+    public void givenMissingId_whenDeleteEmployee_thenThrowException() {
+        //given
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeRepository.deleteById(1L)).willReturn(Mono.just(0L));
+
+        //when
+        StepVerifier.create(employeeService.deleteEmployee(1L))
+
+        //then
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+    }
+
+    @DisplayName("Junit test for reactive deleteEmployees method (nothing deleted)")
+    @Test
+    public void givenMissingIds_whenDeleteEmployees_thenKeepTableVersion() {
+        //given
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeRepository.deleteByIdIn(List.of(1L, 2L))).willReturn(Mono.just(0L));
+
+        //when
+        StepVerifier.create(employeeService.deleteEmployees(List.of(1L, 2L)))
+
+        //then
+                .expectNext(0L)
+                .verifyComplete();
+        verify(employeeRepository, never()).incrementTableVersion();
+    }
+
+    @DisplayName("Junit test for reactive deleteEmployeesByLastName method (nothing deleted)")
+    @Test
+    public void givenMissingLastName_whenDeleteEmployeesByLastName_thenKeepTableVersion() {
+        //given
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeRepository.findIdsByLastNameForUpdate("Doe")).willReturn(Flux.empty());
+
+        //when
+        StepVerifier.create(employeeService.deleteEmployeesByLastName("Doe"))
+
+        //then
+                .expectNext(0L)
+                .verifyComplete();
+        verify(employeeRepository, never()).deleteByLastName(any());
+        verify(employeeRepository, never()).incrementTableVersion();
+    }
+
+    // as DatabaseClient translates the driver's error for a duplicate key
+    private static DuplicateKeyException duplicateKey(String key) {
+        String message = "Duplicate entry 'simple@gmail.com' for key '" + key + "'";
+        return new DuplicateKeyException(message, new R2dbcDataIntegrityViolationException(message, "23000", 1062));
+    }
+}
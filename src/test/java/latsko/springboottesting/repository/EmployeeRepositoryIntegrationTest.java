@@ -1,25 +1,42 @@
 package latsko.springboottesting.repository;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
 import latsko.springboottesting.integration.AbstractContainerBaseTest;
 import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeView;
+import latsko.springboottesting.sql.RecordSqlStatements;
+import latsko.springboottesting.sql.SqlStatementRecorder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static latsko.springboottesting.sql.SqlStatementRecorder.Type.DELETE;
+import static latsko.springboottesting.sql.SqlStatementRecorder.Type.SELECT;
+import static latsko.springboottesting.sql.SqlStatementRecorder.Type.UPDATE;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RecordSqlStatements
 public class EmployeeRepositoryIntegrationTest extends AbstractContainerBaseTest {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private SqlStatementRecorder sqlStatements;
+
+    @Autowired
+    private EntityManager entityManager;
+
     private Employee employee;
 
     @BeforeEach
@@ -56,6 +73,63 @@ public class EmployeeRepositoryIntegrationTest extends AbstractContainerBaseTest
         assertThat(employees).hasSize(2);
     }
 
+    @DisplayName("Integration test for keyset page operation")
+    @Test
+    public void givenEmployeeList_whenFindByIdGreaterThan_thenReturnNextEmployeesInIdOrder() {
+        //given
+        Employee employee1 = employeeRepository.save(createEmployee("Dave", "Johnson", "address1@gmail.com"));
+        Employee employee2 = employeeRepository.save(createEmployee("Cassius", "Clay", "address2@gmail.com"));
+        Employee employee3 = employeeRepository.save(createEmployee("Mike", "Tyson", "address3@gmail.com"));
+
+        //when
+        List<EmployeeView> employees = employeeRepository.findViewsByIdGreaterThanOrderByIdAsc(employee1.getId(),
+                Limit.of(1));
+
+        //then
+        assertThat(employees).hasSize(1);
+        assertThat(employees.get(0).id()).isEqualTo(employee2.getId());
+        assertThat(employee3.getId()).isGreaterThan(employee2.getId());
+    }
+
+    @DisplayName("Integration test for streaming projection operation")
+    @Test
+    public void givenEmployeeList_whenStreamAllBy_thenReturnProjectedEmployeesInIdOrder() {
+        //given
+        Employee employee1 = employeeRepository.save(createEmployee("Dave", "Johnson", "address1@gmail.com"));
+        Employee employee2 = employeeRepository.save(createEmployee("Cassius", "Clay", "address2@gmail.com"));
+
+        //when
+        List<EmployeeView> employees;
+        try (Stream<EmployeeView> stream = employeeRepository.streamAllBy()) {
+            employees = stream.toList();
+        }
+
+        //then
+        assertThat(employees).extracting(EmployeeView::id).containsExactly(employee1.getId(), employee2.getId());
+        assertThat(employees.get(0).email()).isEqualTo("address1@gmail.com");
+    }
+
+    @DisplayName("Integration test for projected read operations")
+    @Test
+    public void givenEmployees_whenFindViews_thenReturnProjectedRowsWithOneSelectEach() {
+        //given
+        Employee employee1 = employeeRepository.save(createEmployee("Dave", "Johnson", "address1@gmail.com"));
+        Employee employee2 = employeeRepository.saveAndFlush(createEmployee("Cassius", "Clay", "address2@gmail.com"));
+        sqlStatements.reset();
+
+        //when
+        List<EmployeeView> all = employeeRepository.findAllViews();
+        List<EmployeeView> page = employeeRepository.findViewsByIdGreaterThanOrderByIdAsc(employee1.getId(), Limit.of(1));
+        List<EmployeeView> byName = employeeRepository.findViewsByName("Dave", "Johnson");
+
+        //then
+        assertThat(all).extracting(EmployeeView::id).containsExactly(employee1.getId(), employee2.getId());
+        assertThat(page).containsExactly(EmployeeView.of(employee2));
+        assertThat(byName).containsExactly(EmployeeView.of(employee1));
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(3);
+        assertThat(sqlStatements.statements()).hasSize(3);
+    }
+
     @DisplayName("Integration test for get employee by id operation")
     @Test
     public void givenEmployee_whenFindById_thenReturnEmployeeById() {
@@ -74,13 +148,33 @@ public class EmployeeRepositoryIntegrationTest extends AbstractContainerBaseTest
     @Test
     public void givenEmail_whenFindByEmail_thenReturnEmployeeByEmail() {
         //given
-        employeeRepository.save(employee);
+        employeeRepository.saveAndFlush(employee);
+        sqlStatements.reset();
 
         //when
         Optional<Employee> foundEmployee = employeeRepository.findByEmail(employee.getEmail());
 
         //then
         assertThat(foundEmployee).isNotNull();
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(1);
+        assertThat(sqlStatements.statements()).hasSize(1);
+    }
+
+    @DisplayName("Integration test for existing emails lookup operation")
+    @Test
+    public void givenEmployee_whenFindExistingEmails_thenReturnOnlyStoredEmails() {
+        //given
+        employeeRepository.saveAndFlush(employee);
+        sqlStatements.reset();
+
+        //when
+        List<String> existingEmails = employeeRepository.findExistingEmails(
+                List.of(employee.getEmail(), "unknown@gmail.com"));
+
+        //then
+        assertThat(existingEmails).containsExactly(employee.getEmail());
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(1);
+        assertThat(sqlStatements.statements()).hasSize(1);
     }
 
     @DisplayName("Integration test for update employee operation")
@@ -100,6 +194,47 @@ public class EmployeeRepositoryIntegrationTest extends AbstractContainerBaseTest
         assertThat(updatedEmployee.getLastName()).isEqualTo("Changed");
     }
 
+    @DisplayName("Integration test for single statement update operation")
+    @Test
+    public void givenEmployee_whenUpdateEmployeeById_thenReturnAffectedRows() {
+        //given
+        employeeRepository.saveAndFlush(employee);
+        sqlStatements.reset();
+
+        //when
+        int updated = employeeRepository.updateEmployee(employee.getId(), "Jack", "Changed", "changedEmail@gmail.com");
+        int missing = employeeRepository.updateEmployee(employee.getId() + 1, "Jack", "Changed", "other@gmail.com");
+
+        //then
+        assertThat(updated).isEqualTo(1);
+        assertThat(missing).isZero();
+        assertThat(sqlStatements.count(UPDATE, "employees")).isEqualTo(2);
+        assertThat(sqlStatements.count(SELECT)).isZero();
+        Employee updatedEmployee = employeeRepository.findById(employee.getId()).get();
+        assertThat(updatedEmployee.getFirstName()).isEqualTo("Jack");
+        assertThat(updatedEmployee.getEmail()).isEqualTo("changedEmail@gmail.com");
+    }
+
+    @DisplayName("Integration test for single statement partial update operation")
+    @Test
+    public void givenEmployee_whenPatchEmployee_thenKeepFieldsNotGiven() {
+        //given
+        employeeRepository.saveAndFlush(employee);
+        sqlStatements.reset();
+
+        //when
+        int updated = employeeRepository.patchEmployee(employee.getId(), null, "Changed", null);
+
+        //then
+        assertThat(updated).isEqualTo(1);
+        assertThat(sqlStatements.count(UPDATE, "employees")).isEqualTo(1);
+        assertThat(sqlStatements.count(SELECT)).isZero();
+        Employee patchedEmployee = employeeRepository.findById(employee.getId()).get();
+        assertThat(patchedEmployee.getFirstName()).isEqualTo("John");
+        assertThat(patchedEmployee.getLastName()).isEqualTo("Changed");
+        assertThat(patchedEmployee.getEmail()).isEqualTo("simple@gmail.com");
+    }
+
     @DisplayName("Integration test for delete employee operation")
     @Test
     public void givenEmployeeObject_whenDelete_thenRemoveEmployee() {
@@ -114,64 +249,129 @@ public class EmployeeRepositoryIntegrationTest extends AbstractContainerBaseTest
         assertThat(employeeOptional).isEmpty();
     }
 
+    @DisplayName("Integration test for single statement delete operations")
+    @Test
+    public void givenEmployees_whenDeleteWithoutLoading_thenReturnAffectedRows() {
+        //given
+        Employee employee1 = employeeRepository.save(createEmployee("Dave", "Johnson", "address1@gmail.com"));
+        Employee employee2 = employeeRepository.save(createEmployee("Cassius", "Clay", "address2@gmail.com"));
+        Employee employee3 = employeeRepository.save(createEmployee("Rudy", "Clay", "address3@gmail.com"));
+        Employee employee4 = employeeRepository.saveAndFlush(createEmployee("Mike", "Tyson", "address4@gmail.com"));
+        sqlStatements.reset();
+
+        //when
+        int deletedById = employeeRepository.deleteEmployeeById(employee1.getId());
+        int deletedMissing = employeeRepository.deleteEmployeeById(employee1.getId());
+        int deletedByLastName = employeeRepository.deleteEmployeesByLastName("Clay");
+        int deletedByIds = employeeRepository.deleteEmployeesByIdIn(List.of(employee2.getId(), employee4.getId()));
+
+        //then
+        assertThat(deletedById).isEqualTo(1);
+        assertThat(deletedMissing).isZero();
+        assertThat(deletedByLastName).isEqualTo(2);
+        assertThat(deletedByIds).isEqualTo(1);
+        assertThat(sqlStatements.count(DELETE, "employees")).isEqualTo(4);
+        assertThat(sqlStatements.count(SELECT)).isZero();
+        assertThat(employeeRepository.findById(employee3.getId())).isEmpty();
+        assertThat(employeeRepository.count()).isZero();
+    }
+
     @DisplayName("Integration test for custom query using JPQL with index")
     @Test
     public void givenFirstNameAndLastName_whenFindByJPQL_thenReturnEmployeeObject() {
         //given
-        employeeRepository.save(employee);
+        employeeRepository.saveAndFlush(employee);
         String firstName = "John";
         String lastName = "Doe";
+        sqlStatements.reset();
 
         //when
         Employee foundEmployee = employeeRepository.findByJPQL(firstName, lastName);
 
         //then
         assertThat(foundEmployee).isNotNull();
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(1);
+        assertThat(sqlStatements.statements()).hasSize(1);
     }
 
     @DisplayName("Integration test for custom query using JPQL with named params")
     @Test
     public void givenFirstNameAndLastName_whenFindByJPQLNamedParams_thenReturnEmployeeObject() {
         //given
-        employeeRepository.save(employee);
+        employeeRepository.saveAndFlush(employee);
         String firstName = "John";
         String lastName = "Doe";
+        sqlStatements.reset();
 
         //when
         Employee foundEmployee = employeeRepository.findByJPQLNamedParams(firstName, lastName);
 
         //then
         assertThat(foundEmployee).isNotNull();
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(1);
+        assertThat(sqlStatements.statements()).hasSize(1);
     }
 
     @DisplayName("Integration test for custom query using native query with index")
     @Test
     public void givenFirstNameAndLastName_whenFindByNativeSQL_thenReturnEmployeeObject() {
         //given
-        employeeRepository.save(employee);
+        employeeRepository.saveAndFlush(employee);
         String firstName = "John";
         String lastName = "Doe";
+        sqlStatements.reset();
 
         //when
         Employee foundEmployee = employeeRepository.findByNativeSQL(firstName, lastName);
 
         //then
         assertThat(foundEmployee).isNotNull();
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(1);
+        assertThat(sqlStatements.statements()).hasSize(1);
     }
 
     @DisplayName("Integration test for custom query using native query with named params")
     @Test
     public void givenFirstNameAndLastName_whenFindByNativeSQLNamedParams_thenReturnEmployeeObject() {
         //given
-        employeeRepository.save(employee);
+        employeeRepository.saveAndFlush(employee);
         String firstName = "John";
         String lastName = "Doe";
+        sqlStatements.reset();
 
         //when
         Employee foundEmployee = employeeRepository.findByNativeSQLNamed(firstName, lastName);
 
         //then
         assertThat(foundEmployee).isNotNull();
+        assertThat(sqlStatements.count(SELECT)).isEqualTo(1);
+        assertThat(sqlStatements.statements()).hasSize(1);
+    }
+
+    @DisplayName("Integration test for finders using the indexes created by the migrations")
+    @Test
+    public void givenEmployees_whenExplainFinders_thenIndexesAreUsed() {
+        //given
+        for (int i = 0; i < 50; i++) {
+            employeeRepository.save(createEmployee("First" + i, "Last" + i, "address" + i + "@gmail.com"));
+        }
+        employeeRepository.flush();
+
+        //when
+        String emailIndex = explainedIndex("select * from employees e where e.email = 'address7@gmail.com'");
+        String nameIndex = explainedIndex("select * from employees e where e.first_name = 'First7' and e.last_name = 'Last7'");
+        String lastNameIndex = explainedIndex("select * from employees e where e.last_name = 'Last7'");
+
+        //then
+        assertThat(emailIndex).isEqualTo(Employee.EMAIL_UNIQUE_CONSTRAINT);
+        assertThat(nameIndex).isEqualTo("idx_employees_last_name_first_name");
+        assertThat(lastNameIndex).isEqualTo("idx_employees_last_name_first_name");
+    }
+
+    // the index MySQL picks for the query, null for a full table scan
+    private String explainedIndex(String sql) {
+        Tuple plan = (Tuple) entityManager.createNativeQuery("explain " + sql, Tuple.class).getSingleResult();
+        return (String) plan.get("key");
     }
 
     private Employee createEmployee(String firstName, String lastName, String email) {
@@ -1,14 +1,17 @@
 package latsko.springboottesting.repository;
 
 import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeView;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -54,6 +57,42 @@ class EmployeeRepositoryTest {
         assertThat(employees).hasSize(2);
     }
 
+    @DisplayName("Junit test for keyset page operation")
+    @Test
+    public void givenEmployeeList_whenFindByIdGreaterThan_thenReturnNextEmployeesInIdOrder() {
+        //given
+        Employee employee1 = employeeRepository.save(createEmployee("Dave", "Johnson", "address1@gmail.com"));
+        Employee employee2 = employeeRepository.save(createEmployee("Cassius", "Clay", "address2@gmail.com"));
+        Employee employee3 = employeeRepository.save(createEmployee("Mike", "Tyson", "address3@gmail.com"));
+
+        //when
+        List<EmployeeView> employees = employeeRepository.findViewsByIdGreaterThanOrderByIdAsc(employee1.getId(),
+                Limit.of(1));
+
+        //then
+        assertThat(employees).hasSize(1);
+        assertThat(employees.get(0).id()).isEqualTo(employee2.getId());
+        assertThat(employee3.getId()).isGreaterThan(employee2.getId());
+    }
+
+    @DisplayName("Junit test for streaming projection operation")
+    @Test
+    public void givenEmployeeList_whenStreamAllBy_thenReturnProjectedEmployeesInIdOrder() {
+        //given
+        Employee employee1 = employeeRepository.save(createEmployee("Dave", "Johnson", "address1@gmail.com"));
+        Employee employee2 = employeeRepository.save(createEmployee("Cassius", "Clay", "address2@gmail.com"));
+
+        //when
+        List<EmployeeView> employees;
+        try (Stream<EmployeeView> stream = employeeRepository.streamAllBy()) {
+            employees = stream.toList();
+        }
+
+        //then
+        assertThat(employees).extracting(EmployeeView::id).containsExactly(employee1.getId(), employee2.getId());
+        assertThat(employees.get(0).email()).isEqualTo("address1@gmail.com");
+    }
+
     @DisplayName("Junit test for get employee by id operation")
     @Test
     public void givenEmployee_whenFindById_thenReturnEmployeeById() {
@@ -81,6 +120,20 @@ class EmployeeRepositoryTest {
         assertThat(foundEmployee).isNotNull();
     }
 
+    @DisplayName("Junit test for existing emails lookup operation")
+    @Test
+    public void givenEmployee_whenFindExistingEmails_thenReturnOnlyStoredEmails() {
+        //given
+        employeeRepository.save(employee);
+
+        //when
+        List<String> existingEmails = employeeRepository.findExistingEmails(
+                List.of(employee.getEmail(), "unknown@gmail.com"));
+
+        //then
+        assertThat(existingEmails).containsExactly(employee.getEmail());
+    }
+
     @DisplayName("Junit test for update employee operation")
     @Test
     public void givenEmployeeObject_whenUpdateEmployee_thenReturnUpdatedEmployee() {
@@ -98,6 +151,41 @@ class EmployeeRepositoryTest {
         assertThat(updatedEmployee.getLastName()).isEqualTo("Changed");
     }
 
+    @DisplayName("Junit test for single statement update operation")
+    @Test
+    public void givenEmployee_whenUpdateEmployeeById_thenReturnAffectedRows() {
+        //given
+        employeeRepository.save(employee);
+
+        //when
+        int updated = employeeRepository.updateEmployee(employee.getId(), "Jack", "Changed", "changedEmail@gmail.com");
+        int missing = employeeRepository.updateEmployee(employee.getId() + 1, "Jack", "Changed", "other@gmail.com");
+
+        //then
+        assertThat(updated).isEqualTo(1);
+        assertThat(missing).isZero();
+        Employee updatedEmployee = employeeRepository.findById(employee.getId()).get();
+        assertThat(updatedEmployee.getFirstName()).isEqualTo("Jack");
+        assertThat(updatedEmployee.getEmail()).isEqualTo("changedEmail@gmail.com");
+    }
+
+    @DisplayName("Junit test for single statement partial update operation")
+    @Test
+    public void givenEmployee_whenPatchEmployee_thenKeepFieldsNotGiven() {
+        //given
+        employeeRepository.save(employee);
+
+        //when
+        int updated = employeeRepository.patchEmployee(employee.getId(), null, "Changed", null);
+
+        //then
+        assertThat(updated).isEqualTo(1);
+        Employee patchedEmployee = employeeRepository.findById(employee.getId()).get();
+        assertThat(patchedEmployee.getFirstName()).isEqualTo("John");
+        assertThat(patchedEmployee.getLastName()).isEqualTo("Changed");
+        assertThat(patchedEmployee.getEmail()).isEqualTo("simple@gmail.com");
+    }
+
     @DisplayName("Junit test for delete employee operation")
     @Test
     public void givenEmployeeObject_whenDelete_thenRemoveEmployee() {
@@ -112,6 +200,30 @@ class EmployeeRepositoryTest {
         assertThat(employeeOptional).isEmpty();
     }
 
+    @DisplayName("Junit test for single statement delete operations")
+    @Test
+    public void givenEmployees_whenDeleteWithoutLoading_thenReturnAffectedRows() {
+        //given
+        Employee employee1 = employeeRepository.save(createEmployee("Dave", "Johnson", "address1@gmail.com"));
+        Employee employee2 = employeeRepository.save(createEmployee("Cassius", "Clay", "address2@gmail.com"));
+        Employee employee3 = employeeRepository.save(createEmployee("Rudy", "Clay", "address3@gmail.com"));
+        Employee employee4 = employeeRepository.save(createEmployee("Mike", "Tyson", "address4@gmail.com"));
+
+        //when
+        int deletedById = employeeRepository.deleteEmployeeById(employee1.getId());
+        int deletedMissing = employeeRepository.deleteEmployeeById(employee1.getId());
+        int deletedByLastName = employeeRepository.deleteEmployeesByLastName("Clay");
+        int deletedByIds = employeeRepository.deleteEmployeesByIdIn(List.of(employee2.getId(), employee4.getId()));
+
+        //then
+        assertThat(deletedById).isEqualTo(1);
+        assertThat(deletedMissing).isZero();
+        assertThat(deletedByLastName).isEqualTo(2);
+        assertThat(deletedByIds).isEqualTo(1);
+        assertThat(employeeRepository.findById(employee3.getId())).isEmpty();
+        assertThat(employeeRepository.count()).isZero();
+    }
+
     @DisplayName("Junit test for custom query using JPQL with index")
     @Test
     public void givenFirstNameAndLastName_whenFindByJPQL_thenReturnEmployeeObject() {
@@ -0,0 +1,172 @@
+package latsko.springboottesting.search;
+
+import latsko.springboottesting.exception.SearchIndexNotReadyException;
+import latsko.springboottesting.model.EmployeeView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmployeeSearchIndexTest {
+
+    private EmployeeSearchIndex searchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        searchIndex = new EmployeeSearchIndex(10000, 2);
+        searchIndex.load(sink -> List.of(
+                new EmployeeView(1L, "John", "Doe", "john.doe@gmail.com"),
+                new EmployeeView(2L, "Johnny", "Smith", "jsmith@gmail.com"),
+                new EmployeeView(3L, "Anna", "Johnson", "ajohnson@gmail.com"),
+                new EmployeeView(4L, "Bob", "Jones", "bob@gmail.com")).forEach(sink));
+    }
+
+    @DisplayName("Junit test for search ranking whole-word name matches first")
+    @Test
+    public void givenPrefix_whenSearch_thenRankExactNameMatchesFirst() {
+        //when
+        List<EmployeeView> employees = searchIndex.search("John", 10);
+
+        //then
+        assertThat(employees).extracting(EmployeeView::id).containsExactly(1L, 2L, 3L);
+    }
+
+    @DisplayName("Junit test for search requiring every word of the query")
+    @Test
+    public void givenSeveralWords_whenSearch_thenMatchAllOfThem() {
+        //when
+        List<EmployeeView> byName = searchIndex.search("jo do", 10);
+        List<EmployeeView> byEmail = searchIndex.search("john.doe@gmail", 10);
+
+        //then
+        assertThat(byName).extracting(EmployeeView::id).containsExactly(1L);
+        assertThat(byEmail).extracting(EmployeeView::id).containsExactly(1L);
+    }
+
+    @DisplayName("Junit test for search ignoring queries shorter than the minimum prefix")
+    @Test
+    public void givenSingleLetter_whenSearch_thenReturnEmptyList() {
+        //when
+        List<EmployeeView> employees = searchIndex.search("j", 10);
+
+        //then
+        assertThat(employees).isEmpty();
+    }
+
+    @DisplayName("Junit test for search keeping only the best matches")
+    @Test
+    public void givenManyMatches_whenSearch_thenReturnTopK() {
+        //given
+        searchIndex.load(sink -> IntStream.rangeClosed(1, 1000)
+                .mapToObj(i -> new EmployeeView(i, i % 100 == 0 ? "Mark" : "Markus", "Last" + i, "m" + i + "@gmail.com"))
+                .forEach(sink));
+
+        //when
+        List<EmployeeView> employees = searchIndex.search("mark", 3);
+
+        //then
+        assertThat(employees).extracting(EmployeeView::id).containsExactly(100L, 200L, 300L);
+    }
+
+    @DisplayName("Junit test for search which throws exception (index not loaded yet)")
+    @Test
+    public void givenIndexNotLoaded_whenSearch_thenThrowException() {
+        //given
+        EmployeeSearchIndex loading = new EmployeeSearchIndex(10000, 2);
+
+        //when, then
+        assertThatThrownBy(() -> loading.search("john", 10)).isInstanceOf(SearchIndexNotReadyException.class);
+    }
+
+    @DisplayName("Junit test for search seeing writes made after the index was loaded")
+    @Test
+    public void givenWrites_whenSearch_thenReflectThem() {
+        //given
+        searchIndex.indexEmployee(new EmployeeView(5L, "Johanna", "Berg", "jberg@gmail.com"));
+        searchIndex.indexEmployee(new EmployeeView(2L, "Peter", "Smith", "jsmith@gmail.com"));
+        searchIndex.indexPatch(3L, null, "Miller", null);
+        searchIndex.removeEmployee(1L);
+
+        //when
+        List<EmployeeView> employees = searchIndex.search("jo", 10);
+
+        //then
+        assertThat(employees).extracting(EmployeeView::id).containsExactly(4L, 5L);
+        assertThat(searchIndex.search("miller", 10)).containsExactly(
+                new EmployeeView(3L, "Anna", "Miller", "ajohnson@gmail.com"));
+    }
+
+    @DisplayName("Junit test for patches made while the initial load is running")
+    @Test
+    public void givenLoadBlocked_whenPatchEmployee_thenPatchAppliedOnceLoaded() throws InterruptedException {
+        //given
+        EmployeeSearchIndex loading = new EmployeeSearchIndex(10000, 2);
+        CountDownLatch scanStarted = new CountDownLatch(1);
+        CountDownLatch patched = new CountDownLatch(1);
+        Thread loader = Thread.ofPlatform().start(() -> loading.load(sink -> {
+            scanStarted.countDown();
+            try {
+                patched.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // read before the patch was committed
+            sink.accept(new EmployeeView(1L, "John", "Doe", "john.doe@gmail.com"));
+            sink.accept(new EmployeeView(2L, "Anna", "Johnson", "ajohnson@gmail.com"));
+        }));
+        scanStarted.await();
+
+        //when
+        loading.indexPatch(1L, null, "Miller", null);
+        loading.indexPatch(1L, "Jim", null, null);
+        loading.indexPatch(3L, "Gone", null, null);
+        patched.countDown();
+        loader.join();
+
+        //then
+        assertThat(loading.search("miller", 10)).containsExactly(
+                new EmployeeView(1L, "Jim", "Miller", "john.doe@gmail.com"));
+        assertThat(loading.search("gone", 10)).isEmpty();
+        loading.destroy();
+    }
+
+    @DisplayName("Junit test for search after deleting employees by last name")
+    @Test
+    public void givenDeletedLastName_whenSearch_thenSkipThoseEmployees() {
+        //given
+        searchIndex.indexEmployee(new EmployeeView(5L, "Jon", "Jones", "jon@gmail.com"));
+        searchIndex.removeEmployeesByLastName("JONES");
+
+        //when
+        List<EmployeeView> employees = searchIndex.search("jo", 10);
+
+        //then
+        assertThat(employees).extracting(EmployeeView::id).containsExactly(1L, 2L, 3L);
+    }
+
+    @DisplayName("Junit test for folding pending writes into a new segment")
+    @Test
+    public void givenWritesAboveThreshold_whenCompacted_thenSegmentHoldsThem() throws InterruptedException {
+        //given
+        EmployeeSearchIndex compacting = new EmployeeSearchIndex(2, 2);
+        compacting.load(sink -> sink.accept(new EmployeeView(1L, "John", "Doe", "john.doe@gmail.com")));
+
+        //when
+        compacting.indexEmployee(new EmployeeView(2L, "Johnny", "Smith", "jsmith@gmail.com"));
+        compacting.indexEmployee(new EmployeeView(3L, "Anna", "Johnson", "ajohnson@gmail.com"));
+        for (int i = 0; i < 100 && compacting.size() != 3; i++) {
+            Thread.sleep(10);
+        }
+
+        //then
+        assertThat(compacting.size()).isEqualTo(3);
+        assertThat(compacting.search("john", 10)).extracting(EmployeeView::id).containsExactly(1L, 2L, 3L);
+        compacting.destroy();
+    }
+}
@@ -1,10 +1,22 @@
 package latsko.springboottesting.service;
 
+import latsko.springboottesting.cache.EmployeeCache;
+import latsko.springboottesting.cache.EmployeeResponseCache;
+import latsko.springboottesting.exception.InvalidCursorException;
+import latsko.springboottesting.exception.ResourceAlreadyExistsException;
 import latsko.springboottesting.exception.ResourceNotFoundException;
+import latsko.springboottesting.exception.VersionMismatchException;
 import latsko.springboottesting.model.Employee;
+import latsko.springboottesting.model.EmployeeBatchResult;
+import latsko.springboottesting.model.EmployeeChange;
+import latsko.springboottesting.model.EmployeeChanges;
+import latsko.springboottesting.model.EmployeePage;
+import latsko.springboottesting.model.EmployeeView;
 import latsko.springboottesting.repository.EmployeeRepository;
+import latsko.springboottesting.search.EmployeeSearchIndex;
 import latsko.springboottesting.service.impl.EmployeeServiceImpl;
 import org.assertj.core.api.ThrowableAssert;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,11 +29,18 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.given;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -31,6 +50,12 @@ class EmployeeServiceTest {
 
     @Mock
     private EmployeeRepository employeeRepository;
+    @Spy
+    private EmployeeCache employeeCache = new EmployeeCache(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+    @Mock
+    private EmployeeSearchIndex employeeSearchIndex;
+    @Mock
+    private EmployeeResponseCache responseCache;
     @InjectMocks
     private EmployeeServiceImpl employeeService;
     private Employee employee;
@@ -44,54 +69,90 @@ class EmployeeServiceTest {
     @Test
     public void givenEmployeeObject_whenSaveEmployee_thenReturnEmployeeObject() {
         //given
-        given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.empty());
-        given(employeeRepository.save(employee)).willReturn(employee);
+        given(employeeRepository.saveAndFlush(employee)).willReturn(employee);
 
         //when
         Employee savedEmployee = employeeService.saveEmployee(employee);
 
         //then
         assertThat(savedEmployee).isNotNull();
+        verify(employeeRepository, never()).findByEmail(any());
     }
 
     @DisplayName("Junit test for saveEmployee method which throws exception (Method #1)")
     @Test
     public void givenEmployeeObject_whenSaveEmployee_thenThrowException() {
         //given
-        given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.of(employee));
+        given(employeeRepository.saveAndFlush(employee)).willThrow(duplicateEmailViolation());
 
         //when
         ThrowableAssert.ThrowingCallable callable = () -> employeeService.saveEmployee(employee);
 
         //then
-        assertThatThrownBy(callable).isInstanceOf(ResourceNotFoundException.class)
+        assertThatThrownBy(callable).isInstanceOf(ResourceAlreadyExistsException.class)
                 .hasMessage("Employee already exist with given email: simple@gmail.com");
-        verify(employeeRepository, never()).save(any(Employee.class));
+        verify(employeeRepository, never()).findByEmail(any());
     }
 
     @DisplayName("Junit test for saveEmployee method which throws exception (Method #2)")
     @Test
     public void givenEmployeeObject_whenSaveEmployee_thenThrowExceptionInAssertThrows() {
         //given
-        given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.of(employee));
+        given(employeeRepository.saveAndFlush(employee)).willThrow(duplicateEmailViolation());
 
         //when
-        assertThrows(ResourceNotFoundException.class, () -> {
+        assertThrows(ResourceAlreadyExistsException.class, () -> {
             employeeService.saveEmployee(employee);
         });
 
         //then
-        verify(employeeRepository, never()).save(any(Employee.class));
+        verify(employeeRepository, times(1)).saveAndFlush(employee);
+    }
+
+    @DisplayName("Junit test for saveEmployee method (other integrity violations are not conflicts)")
+    @Test
+    public void givenNullEmail_whenSaveEmployee_thenRethrowIntegrityViolation() {
+        //given
+        DataIntegrityViolationException notNullViolation = new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("Column 'email' cannot be null", new SQLException(), null));
+        given(employeeRepository.saveAndFlush(employee)).willThrow(notNullViolation);
+
+        //when
+        ThrowableAssert.ThrowingCallable callable = () -> employeeService.saveEmployee(employee);
+
+        //then
+        assertThatThrownBy(callable).isSameAs(notNullViolation);
+    }
+
+    @DisplayName("Junit test for saveEmployees method (existing and duplicate emails are conflicts)")
+    @Test
+    public void givenEmployeeBatch_whenSaveEmployees_thenSaveOnlyNewEmails() {
+        //given
+        Employee existing = Employee.builder().firstName("Jane").lastName("Doe").email("jane@gmail.com").build();
+        Employee fresh = Employee.builder().firstName("Jim").lastName("Doe").email("jim@gmail.com").build();
+        Employee duplicate = Employee.builder().firstName("Jimmy").lastName("Doe").email("jim@gmail.com").build();
+        given(employeeRepository.findExistingEmails(List.of("jane@gmail.com", "jim@gmail.com", "jim@gmail.com")))
+                .willReturn(List.of("jane@gmail.com"));
+
+        //when
+        List<EmployeeBatchResult> results = employeeService.saveEmployees(List.of(existing, fresh, duplicate));
+
+        //then
+        assertThat(results).extracting(EmployeeBatchResult::getStatus).containsExactly(
+                EmployeeBatchResult.Status.CONFLICT, EmployeeBatchResult.Status.CREATED, EmployeeBatchResult.Status.CONFLICT);
+        assertThat(results.get(0).getMessage()).isEqualTo("Employee already exist with given email: jane@gmail.com");
+        verify(employeeRepository, times(1)).saveAllAndFlush(List.of(fresh));
+        verify(employeeRepository, never()).findByEmail(any());
     }
 
     @DisplayName("Junit test for getAllEmployees method")
     @Test
     public void givenEmployeeList_whenGetAllEmployees_thenReturnEmployeeList() {
         //given
-        given(employeeRepository.findAll()).willReturn(Collections.singletonList(employee));
+        given(employeeRepository.findAllViews()).willReturn(Collections.singletonList(EmployeeView.of(employee)));
 
         //when
-        List<Employee> allEmployees = employeeService.getAllEmployees();
+        List<EmployeeView> allEmployees = employeeService.getAllEmployees();
 
         //then
         assertThat(allEmployees)
@@ -103,20 +164,180 @@ class EmployeeServiceTest {
     @Test
     public void givenEmptyEmployeeList_whenGetAllEmployees_thenReturnEmptyEmployeeList() {
         //given
-        given(employeeRepository.findAll()).willReturn(Collections.emptyList());
+        given(employeeRepository.findAllViews()).willReturn(Collections.emptyList());
 
         //when
-        List<Employee> allEmployees = employeeService.getAllEmployees();
+        List<EmployeeView> allEmployees = employeeService.getAllEmployees();
 
         //then
         assertThat(allEmployees).isEmpty();
     }
 
+    @DisplayName("Junit test for getEmployeesByName method")
+    @Test
+    public void givenFirstAndLastName_whenGetEmployeesByName_thenReturnProjectedEmployees() {
+        //given
+        given(employeeRepository.findViewsByName("John", "Doe")).willReturn(List.of(EmployeeView.of(employee)));
+
+        //when
+        List<EmployeeView> employees = employeeService.getEmployeesByName("John", "Doe");
+
+        //then
+        assertThat(employees).containsExactly(EmployeeView.of(employee));
+        verify(employeeRepository, never()).findByJPQL(any(), any());
+    }
+
+    @DisplayName("Junit test for searchEmployees method")
+    @Test
+    public void givenQuery_whenSearchEmployees_thenServeFromSearchIndex() {
+        //given
+        given(employeeSearchIndex.search("jo", 10)).willReturn(List.of(EmployeeView.of(employee)));
+
+        //when
+        List<EmployeeView> employees = employeeService.searchEmployees("jo", 10);
+
+        //then
+        assertThat(employees).containsExactly(EmployeeView.of(employee));
+        verifyNoInteractions(employeeRepository);
+    }
+
+    @DisplayName("Junit test for getEmployeesPage method (first page with next cursor)")
+    @Test
+    public void givenMoreEmployeesThanLimit_whenGetEmployeesPage_thenReturnPageWithNextCursor() {
+        //given
+        EmployeeView employee1 = EmployeeView.of(employee);
+        EmployeeView employee2 = new EmployeeView(2L, "Jane", "Doe", "jane@gmail.com");
+        EmployeeView employee3 = new EmployeeView(3L, "Jim", "Doe", "jim@gmail.com");
+        given(employeeRepository.findViewsByIdGreaterThanOrderByIdAsc(0L, Limit.of(3)))
+                .willReturn(List.of(employee1, employee2, employee3));
+
+        //when
+        EmployeePage page = employeeService.getEmployeesPage(null, 2);
+
+        //then
+        assertThat(page.getContent()).containsExactly(employee1, employee2);
+        assertThat(page.getNextCursor()).isNotNull();
+
+        //when
+        employeeService.getEmployeesPage(page.getNextCursor(), 2);
+
+        //then
+        verify(employeeRepository).findViewsByIdGreaterThanOrderByIdAsc(2L, Limit.of(3));
+    }
+
+    @DisplayName("Junit test for getEmployeesPage method (last page)")
+    @Test
+    public void givenFewerEmployeesThanLimit_whenGetEmployeesPage_thenReturnPageWithoutNextCursor() {
+        //given
+        given(employeeRepository.findViewsByIdGreaterThanOrderByIdAsc(0L, Limit.of(51)))
+                .willReturn(Collections.singletonList(EmployeeView.of(employee)));
+
+        //when
+        EmployeePage page = employeeService.getEmployeesPage(null, 50);
+
+        //then
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @DisplayName("Junit test for getEmployeesPage method (limit above server maximum)")
+    @Test
+    public void givenLimitAboveMaximum_whenGetEmployeesPage_thenClampLimit() {
+        //given
+        given(employeeRepository.findViewsByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class)))
+                .willReturn(Collections.emptyList());
+
+        //when
+        employeeService.getEmployeesPage(null, 1_000_000);
+
+        //then
+        verify(employeeRepository).findViewsByIdGreaterThanOrderByIdAsc(0L, Limit.of(EmployeePage.MAX_PAGE_SIZE + 1));
+    }
+
+    @DisplayName("Junit test for getEmployeesPage method which throws exception (invalid cursor)")
+    @Test
+    public void givenInvalidCursor_whenGetEmployeesPage_thenThrowException() {
+        //when
+        ThrowableAssert.ThrowingCallable callable = () -> employeeService.getEmployeesPage("not-a-cursor", 10);
+
+        //then
+        assertThatThrownBy(callable).isInstanceOf(InvalidCursorException.class);
+        verify(employeeRepository, never()).findViewsByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class));
+    }
+
+    @DisplayName("Junit test for getChanges method (changes and tombstones in feed order)")
+    @Test
+    public void givenChangesAndTombstones_whenGetChanges_thenReturnPageAndResumeAfterLastChange() {
+        //given
+        EmployeeChange updated1 = new EmployeeChange(5L, 1L, "John", "Doe", "simple@gmail.com");
+        EmployeeChange deleted2 = new EmployeeChange(5L, 2L);
+        EmployeeChange updated3 = new EmployeeChange(5L, 3L, "Jim", "Doe", "jim@gmail.com");
+        EmployeeChange updated4 = new EmployeeChange(6L, 4L, "Jane", "Doe", "jane@gmail.com");
+        given(employeeRepository.findChangesAfter(-1L, 0L, 4)).willReturn(List.of(updated1, deleted2, updated3, updated4));
+
+        //when
+        EmployeeChanges changes = employeeService.getChanges(null, 3);
+
+        //then
+        assertThat(changes.getChanges()).containsExactly(updated1, deleted2, updated3);
+        assertThat(changes.isHasMore()).isTrue();
+
+        //when
+        employeeService.getChanges(changes.getNextToken(), 3);
+
+        //then
+        verify(employeeRepository).findChangesAfter(5L, 3L, 4);
+    }
+
+    @DisplayName("Junit test for getChanges method (no changes since token)")
+    @Test
+    public void givenNoChangesSinceToken_whenGetChanges_thenReturnSameToken() {
+        //given
+        String token = EmployeeChanges.encodeToken(new EmployeeChanges.Token(7L, 12L));
+        given(employeeRepository.findChangesAfter(7L, 12L, 101)).willReturn(Collections.emptyList());
+
+        //when
+        EmployeeChanges changes = employeeService.getChanges(token, 100);
+
+        //then
+        assertThat(changes.getChanges()).isEmpty();
+        assertThat(changes.getNextToken()).isEqualTo(token);
+        assertThat(changes.isHasMore()).isFalse();
+    }
+
+    @DisplayName("Junit test for getChanges method which throws exception (invalid token)")
+    @Test
+    public void givenInvalidToken_whenGetChanges_thenThrowException() {
+        //when
+        ThrowableAssert.ThrowingCallable callable = () -> employeeService.getChanges("not-a-token", 10);
+
+        //then
+        assertThatThrownBy(callable).isInstanceOf(InvalidCursorException.class);
+        verify(employeeRepository, never()).findChangesAfter(anyLong(), anyLong(), anyInt());
+    }
+
+    @DisplayName("Junit test for exportEmployees method")
+    @Test
+    public void givenEmployeeStream_whenExportEmployees_thenConsumeEveryRowAndCloseStream() {
+        //given
+        List<Boolean> closed = new ArrayList<>();
+        EmployeeView view = new EmployeeView(1L, "John", "Doe", "simple@gmail.com");
+        given(employeeRepository.streamAllBy()).willReturn(Stream.of(view).onClose(() -> closed.add(true)));
+        List<EmployeeView> exported = new ArrayList<>();
+
+        //when
+        employeeService.exportEmployees(exported::add);
+
+        //then
+        assertThat(exported).containsExactly(view);
+        assertThat(closed).containsExactly(true);
+    }
+
     @DisplayName("Junit test for getEmployeeById method")
     @Test
     public void givenEmployeeObject_whenGetEmployeeById_thenReturnEmployee() {
         //given
-        given(employeeRepository.findById(anyLong())).willReturn(Optional.of(employee));
+        given(employeeRepository.findDetachedById(anyLong())).willReturn(Optional.of(employee));
 
         //when
         Employee foundEmployee = employeeService.getEmployeeById(1L).orElse(null);
@@ -125,6 +346,42 @@ class EmployeeServiceTest {
         assertThat(foundEmployee).isNotNull();
     }
 
+    @DisplayName("Junit test for getEmployeeById method (second read served from cache)")
+    @Test
+    public void givenCachedEmployee_whenGetEmployeeById_thenRepositoryHitOnce() {
+        //given
+        given(employeeRepository.findDetachedById(1L)).willReturn(Optional.of(employee));
+
+        //when
+        Employee first = employeeService.getEmployeeById(1L).orElseThrow();
+        first.setFirstName("MutatedByCaller");
+        Employee second = employeeService.getEmployeeById(1L).orElseThrow();
+
+        //then
+        assertThat(second.getFirstName()).isEqualTo("John");
+        verify(employeeRepository, times(1)).findDetachedById(1L);
+    }
+
+    @DisplayName("Junit test for getEmployeeById method (missing id cached until created)")
+    @Test
+    public void givenMissingEmployee_whenSaveEmployee_thenCachedMissIsInvalidated() {
+        //given
+        given(employeeRepository.findDetachedById(1L)).willReturn(Optional.empty(), Optional.of(employee));
+        given(employeeRepository.saveAndFlush(employee)).willReturn(employee);
+
+        //when
+        Optional<Employee> missing = employeeService.getEmployeeById(1L);
+        Optional<Employee> stillMissing = employeeService.getEmployeeById(1L);
+        employeeService.saveEmployee(employee);
+        Optional<Employee> created = employeeService.getEmployeeById(1L);
+
+        //then
+        assertThat(missing).isEmpty();
+        assertThat(stillMissing).isEmpty();
+        assertThat(created).isPresent();
+        verify(employeeRepository, times(2)).findDetachedById(1L);
+    }
+
     @DisplayName("Junit test for updateEmployee method")
     @Test
     public void givenEmployeeObject_whenUpdateEmployee_thenReturnUpdatedEmployee() {
@@ -143,17 +400,200 @@ class EmployeeServiceTest {
         assertThat(updatedEmployee.getEmail()).isEqualTo("changed@gmail.com");
     }
 
+    @DisplayName("Junit test for updateEmployee by id method (single UPDATE)")
+    @Test
+    public void givenExistingId_whenUpdateEmployeeById_thenReturnUpdatedEmployeeWithoutSelect() {
+        //given
+        Employee changes = Employee.builder().firstName("ChangedName").lastName("ChangedLastName")
+                .email("changed@gmail.com").build();
+        given(employeeRepository.updateEmployee(1L, "ChangedName", "ChangedLastName", "changed@gmail.com"))
+                .willReturn(1);
+
+        //when
+        Optional<Employee> updatedEmployee = employeeService.updateEmployee(1L, changes);
+
+        //then
+        assertThat(updatedEmployee).isPresent();
+        assertThat(updatedEmployee.get().getId()).isEqualTo(1L);
+        verify(employeeRepository, never()).findById(anyLong());
+        verify(employeeRepository, never()).save(any(Employee.class));
+        verify(employeeCache, times(1)).invalidate(1L);
+    }
+
+    @DisplayName("Junit test for updateEmployee by id method (missing id)")
+    @Test
+    public void givenMissingId_whenUpdateEmployeeById_thenReturnEmpty() {
+        //given
+        given(employeeRepository.updateEmployee(anyLong(), any(), any(), any())).willReturn(0);
+
+        //when
+        Optional<Employee> updatedEmployee = employeeService.updateEmployee(1L, employee);
+
+        //then
+        assertThat(updatedEmployee).isEmpty();
+    }
+
+    @DisplayName("Junit test for updateEmployee by id method (matching If-Match version)")
+    @Test
+    public void givenCurrentVersion_whenUpdateEmployeeIfVersion_thenReturnNextVersion() {
+        //given
+        Employee changes = Employee.builder().firstName("ChangedName").lastName("ChangedLastName")
+                .email("changed@gmail.com").build();
+        given(employeeRepository.updateEmployeeIfVersion(1L, 3L, "ChangedName", "ChangedLastName", "changed@gmail.com"))
+                .willReturn(1);
+
+        //when
+        Optional<Employee> updatedEmployee = employeeService.updateEmployee(1L, changes, 3L);
+
+        //then
+        assertThat(updatedEmployee).isPresent();
+        assertThat(updatedEmployee.get().getVersion()).isEqualTo(4L);
+        verify(employeeRepository, times(1)).incrementTableVersion();
+        verify(responseCache).invalidate(1L);
+        verify(employeeRepository, never()).existsById(anyLong());
+    }
+
+    @DisplayName("Junit test for updateEmployee by id method which throws exception (stale If-Match version)")
+    @Test
+    public void givenStaleVersion_whenUpdateEmployeeIfVersion_thenThrowException() {
+        //given
+        given(employeeRepository.updateEmployeeIfVersion(anyLong(), anyLong(), any(), any(), any())).willReturn(0);
+        given(employeeRepository.existsById(1L)).willReturn(true);
+
+        //when
+        assertThrows(VersionMismatchException.class, () -> employeeService.updateEmployee(1L, employee, 3L));
+
+        //then
+        verify(employeeRepository, never()).incrementTableVersion();
+        verify(employeeCache, never()).invalidate(anyLong());
+    }
+
+    @DisplayName("Junit test for patchEmployee method")
+    @Test
+    public void givenPartialEmployee_whenPatchEmployee_thenUpdateOnlyGivenFields() {
+        //given
+        Employee patch = Employee.builder().email("patched@gmail.com").build();
+        given(employeeRepository.patchEmployee(1L, null, null, "patched@gmail.com")).willReturn(1);
+
+        //when
+        boolean patched = employeeService.patchEmployee(1L, patch);
+
+        //then
+        assertThat(patched).isTrue();
+        verify(employeeCache, times(1)).invalidate(1L);
+        verify(employeeSearchIndex, times(1)).indexPatch(1L, null, null, "patched@gmail.com");
+    }
+
+    @DisplayName("Junit test for patchEmployee method (missing id)")
+    @Test
+    public void givenMissingId_whenPatchEmployee_thenReturnFalse() {
+        //given
+        given(employeeRepository.patchEmployee(anyLong(), any(), any(), any())).willReturn(0);
+
+        //when
+        boolean patched = employeeService.patchEmployee(1L, employee);
+
+        //then
+        assertThat(patched).isFalse();
+        verify(employeeCache, never()).invalidate(anyLong());
+    }
+
     @DisplayName("Junit test for deleteEmployee method")
     @Test
     public void givenEmployeeId_whenDeleteEmployee_thenNothing() {
         //given
-        doNothing().when(employeeRepository).deleteById(anyLong());
+        given(employeeRepository.deleteEmployeeById(1L)).willReturn(1);
 
         //when
         employeeService.deleteEmployee(1L);
 
         //then
-        verify(employeeRepository, times(1)).deleteById(1L);
+        verify(employeeRepository, times(1)).deleteEmployeeById(1L);
+        verify(employeeRepository, times(1)).stampDeletions(List.of(1L));
+        verify(employeeRepository, never()).findById(anyLong());
+        verify(employeeCache, times(1)).invalidate(1L);
+    }
+
+    @DisplayName("Junit test for deleteEmployee method which throws exception (missing id)")
+    @Test
+    public void givenMissingId_whenDeleteEmployee_thenThrowException() {
+        //given
+        given(employeeRepository.deleteEmployeeById(1L)).willReturn(0);
+
+        //when
+        ThrowableAssert.ThrowingCallable callable = () -> employeeService.deleteEmployee(1L);
+
+        //then
+        assertThatThrownBy(callable).isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Employee not found with given id: 1");
+    }
+
+    @DisplayName("Junit test for deleteEmployees method")
+    @Test
+    public void givenEmployeeIds_whenDeleteEmployees_thenDeleteInOneStatement() {
+        //given
+        given(employeeRepository.deleteEmployeesByIdIn(List.of(1L, 2L, 3L))).willReturn(2);
+
+        //when
+        int deleted = employeeService.deleteEmployees(List.of(1L, 2L, 3L));
+
+        //then
+        assertThat(deleted).isEqualTo(2);
+        verify(employeeCache, times(3)).invalidate(anyLong());
+    }
+
+    @DisplayName("Junit test for deleteEmployeesByLastName method")
+    @Test
+    public void givenLastName_whenDeleteEmployeesByLastName_thenDeleteInOneStatement() {
+        //given
+        given(employeeRepository.findIdsByLastNameForUpdate("Doe")).willReturn(List.of(1L, 2L));
+        given(employeeRepository.deleteEmployeesByLastName("Doe")).willReturn(2);
+
+        //when
+        int deleted = employeeService.deleteEmployeesByLastName("Doe");
+
+        //then
+        assertThat(deleted).isEqualTo(2);
+        verify(employeeRepository, times(1)).stampDeletions(List.of(1L, 2L));
+        verify(employeeCache, times(1)).invalidate(1L);
+        verify(employeeCache, times(1)).invalidate(2L);
+        verify(employeeSearchIndex, times(1)).removeEmployeesByLastName("Doe");
+    }
+
+    @DisplayName("Junit test for deleteEmployees method (nothing deleted)")
+    @Test
+    public void givenMissingIds_whenDeleteEmployees_thenKeepTableVersion() {
+        //given
+        given(employeeRepository.deleteEmployeesByIdIn(List.of(1L, 2L))).willReturn(0);
+
+        //when
+        int deleted = employeeService.deleteEmployees(List.of(1L, 2L));
+
+        //then
+        assertThat(deleted).isZero();
+        verify(employeeRepository, never()).incrementTableVersion();
+        verify(employeeRepository, never()).stampDeletions(any());
+    }
+
+    @DisplayName("Junit test for deleteEmployeesByLastName method (nothing deleted)")
+    @Test
+    public void givenMissingLastName_whenDeleteEmployeesByLastName_thenKeepTableVersion() {
+        //given
+        given(employeeRepository.findIdsByLastNameForUpdate("Doe")).willReturn(Collections.emptyList());
+
+        //when
+        int deleted = employeeService.deleteEmployeesByLastName("Doe");
+
+        //then
+        assertThat(deleted).isZero();
+        verify(employeeRepository, never()).deleteEmployeesByLastName(any());
+        verify(employeeRepository, never()).incrementTableVersion();
+        verify(employeeSearchIndex, never()).removeEmployeesByLastName(any());
+    }
+
+    private DataIntegrityViolationException duplicateEmailViolation() {
+        return new DataIntegrityViolationException("duplicate", new ConstraintViolationException(
+                "Duplicate entry 'simple@gmail.com'", new SQLException(), "employees." + Employee.EMAIL_UNIQUE_CONSTRAINT));
     }
 
     private Employee createEmployee() {
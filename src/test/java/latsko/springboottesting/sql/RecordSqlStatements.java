@@ -0,0 +1,25 @@
+package latsko.springboottesting.sql;
+
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Routes the test context's data source through a {@link SqlStatementRecorder}, which the test can then
+ * autowire. Reset it right before the code under test, so fixture setup does not count against the budget:
+ * <pre>
+ * sqlStatements.reset();
+ * employeeService.getEmployeeById(id);
+ * assertThat(sqlStatements.count(Type.SELECT)).isEqualTo(1);
+ * </pre>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Import(SqlStatementRecorderConfig.class)
+public @interface RecordSqlStatements {
+}
@@ -0,0 +1,96 @@
+package latsko.springboottesting.sql;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * JDK proxies around a data source, its connections and their statements that report every execution to a
+ * {@link SqlStatementRecorder}. Everything else is passed through unchanged, unwrap() included, so pool
+ * metrics and Hibernate still see the real pool.
+ */
+final class RecordingDataSource {
+
+    private RecordingDataSource() {
+    }
+
+    static DataSource wrap(DataSource dataSource, SqlStatementRecorder recorder) {
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            Object result = forward(target, method, args);
+            return result instanceof Connection connection ? wrap(connection, recorder) : result;
+        });
+    }
+
+    private static Connection wrap(Connection connection, SqlStatementRecorder recorder) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = forward(target, method, args);
+            if (result instanceof Statement statement) {
+                // prepareStatement and prepareCall take the SQL up front, createStatement passes it per execution
+                String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                return wrap(statement, method.getReturnType(), sql, recorder);
+            }
+            return result;
+        });
+    }
+
+    private static Object wrap(Statement statement, Class<?> type, String preparedSql, SqlStatementRecorder recorder) {
+        StatementHandler handler = new StatementHandler(preparedSql, recorder);
+        return proxy(type, statement, handler);
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, TargetInvocation invocation) {
+        InvocationHandler handler = (proxy, method, args) -> invocation.invoke(target, method, args);
+        return (T) Proxy.newProxyInstance(RecordingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private interface TargetInvocation {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static final class StatementHandler implements TargetInvocation {
+
+        private final String preparedSql;
+        private final SqlStatementRecorder recorder;
+        private String batchSql;
+        private int batchSize;
+
+        StatementHandler(String preparedSql, SqlStatementRecorder recorder) {
+            this.preparedSql = preparedSql;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("addBatch")) {
+                batchSql = args != null && args.length == 1 ? (String) args[0] : preparedSql;
+                batchSize++;
+            } else if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                if (batchSize > 0) {
+                    recorder.recordBatch(batchSql, batchSize);
+                }
+                batchSql = null;
+                batchSize = 0;
+            } else if (name.equals("clearBatch")) {
+                batchSql = null;
+                batchSize = 0;
+            } else if (name.startsWith("execute")) {
+                recorder.record(args != null && args.length > 0 && args[0] instanceof String sql ? sql : preparedSql);
+            }
+            return forward(target, method, args);
+        }
+    }
+}
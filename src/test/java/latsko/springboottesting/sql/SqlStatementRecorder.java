@@ -0,0 +1,97 @@
+package latsko.springboottesting.sql;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Every SQL statement executed through the recording data source since the last {@link #reset()}. A JDBC
+ * batch is recorded once, with the number of rows it carried. Counts can be narrowed to one table, which
+ * keeps id allocation on the sequence table out of a budget.
+ */
+public class SqlStatementRecorder {
+
+    public enum Type {
+        SELECT,
+        INSERT,
+        UPDATE,
+        DELETE,
+        OTHER;
+
+        static Type of(String sql) {
+            String statement = sql.stripLeading().toLowerCase(Locale.ROOT);
+            for (Type type : values()) {
+                if (statement.startsWith(type.name().toLowerCase(Locale.ROOT))) {
+                    return type;
+                }
+            }
+            return OTHER;
+        }
+    }
+
+    public record Statement(Type type, String sql, int batchSize) {
+
+        public boolean isBatch() {
+            return batchSize > 0;
+        }
+    }
+
+    private final Queue<Statement> statements = new ConcurrentLinkedQueue<>();
+
+    public void reset() {
+        statements.clear();
+    }
+
+    public List<Statement> statements() {
+        return List.copyOf(statements);
+    }
+
+    // single executions of the given type, batches not included
+    public long count(Type type) {
+        return single(type, null).count();
+    }
+
+    public long count(Type type, String table) {
+        return single(type, table).count();
+    }
+
+    public long batches(Type type, String table) {
+        return batched(type, table).count();
+    }
+
+    // rows written by batches of the given type
+    public long batchedRows(Type type, String table) {
+        return batched(type, table).mapToLong(Statement::batchSize).sum();
+    }
+
+    void record(String sql) {
+        statements.add(new Statement(Type.of(sql), sql, 0));
+    }
+
+    void recordBatch(String sql, int batchSize) {
+        statements.add(new Statement(Type.of(sql), sql, batchSize));
+    }
+
+    private Stream<Statement> single(Type type, String table) {
+        return matching(type, table).filter(statement -> !statement.isBatch());
+    }
+
+    private Stream<Statement> batched(Type type, String table) {
+        return matching(type, table).filter(Statement::isBatch);
+    }
+
+    private Stream<Statement> matching(Type type, String table) {
+        // word boundaries, so "employees" does not match "employees_seq"; inserts count for the table they write
+        // into, an insert-select names the tables it reads as well
+        Pattern tableName = table != null
+                ? Pattern.compile((type == Type.INSERT ? "\\binto\\s+" : "\\b") + Pattern.quote(table) + "\\b",
+                Pattern.CASE_INSENSITIVE)
+                : null;
+        return statements.stream()
+                .filter(statement -> statement.type() == type)
+                .filter(statement -> tableName == null || tableName.matcher(statement.sql()).find());
+    }
+}
@@ -0,0 +1,29 @@
+package latsko.springboottesting.sql;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+@TestConfiguration(proxyBeanMethods = false)
+public class SqlStatementRecorderConfig {
+
+    @Bean
+    public SqlStatementRecorder sqlStatementRecorder() {
+        return new SqlStatementRecorder();
+    }
+
+    // static so the post processor does not pull the configuration in early
+    @Bean
+    public static BeanPostProcessor recordingDataSourcePostProcessor(SqlStatementRecorder sqlStatementRecorder) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource
+                        ? RecordingDataSource.wrap(dataSource, sqlStatementRecorder)
+                        : bean;
+            }
+        };
+    }
+}
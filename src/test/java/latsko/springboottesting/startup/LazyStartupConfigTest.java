@@ -0,0 +1,29 @@
+package latsko.springboottesting.startup;
+
+import latsko.springboottesting.contoller.EmployeeController;
+import latsko.springboottesting.ingest.EmployeeIngestQueue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyStartupConfigTest {
+
+    private final LazyInitializationExcludeFilter filter = LazyStartupConfig.eagerAtStartup();
+
+    @DisplayName("Junit test for beans kept eager under lazy initialization")
+    @Test
+    public void givenLazyInitialization_whenFiltered_thenKeepDataLayerAndIngestQueueEager() {
+        //when, then
+        assertThat(isExcluded("entityManagerFactory", LocalContainerEntityManagerFactoryBean.class)).isTrue();
+        assertThat(isExcluded("employeeIngestQueue", EmployeeIngestQueue.class)).isTrue();
+        assertThat(isExcluded("employeeController", EmployeeController.class)).isFalse();
+    }
+
+    private boolean isExcluded(String beanName, Class<?> beanType) {
+        return filter.isExcluded(beanName, new RootBeanDefinition(beanType), beanType);
+    }
+}
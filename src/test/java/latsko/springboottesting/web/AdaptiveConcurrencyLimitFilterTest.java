@@ -0,0 +1,109 @@
+package latsko.springboottesting.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import latsko.springboottesting.exception.SearchIndexNotReadyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdaptiveConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("employees.concurrency.initial-limit", "5")
+                .withProperty("employees.concurrency.list.initial-limit", "1");
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new AdaptiveConcurrencyLimitFilter(environment, Duration.ofSeconds(2));
+        filter.bindTo(meterRegistry);
+    }
+
+    @DisplayName("Junit test for classifying API requests into bulkheads")
+    @Test
+    public void givenApiRequests_whenClassified_thenMatchEndpointClass() {
+        //when, then
+        assertThat(EndpointClass.of(new MockHttpServletRequest("GET", "/api/employees/1"))).isEqualTo(EndpointClass.READ);
+        assertThat(EndpointClass.of(new MockHttpServletRequest("GET", "/api/employees/search"))).isEqualTo(EndpointClass.READ);
+        assertThat(EndpointClass.of(new MockHttpServletRequest("GET", "/api/employees"))).isEqualTo(EndpointClass.LIST);
+        assertThat(EndpointClass.of(new MockHttpServletRequest("PUT", "/api/employees/1"))).isEqualTo(EndpointClass.WRITE);
+        assertThat(EndpointClass.of(new MockHttpServletRequest("GET", "/api/employees/export"))).isEqualTo(EndpointClass.BULK);
+        assertThat(EndpointClass.of(new MockHttpServletRequest("POST", "/api/employees/batch"))).isEqualTo(EndpointClass.BULK);
+    }
+
+    @DisplayName("Junit test for limiter shedding requests of a full bulkhead only")
+    @Test
+    public void givenFullBulkhead_whenFilter_thenRejectWithRetryAfterAndAdmitOtherClasses() throws Exception {
+        //given
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> slowList = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/employees"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            inFlight.countDown();
+                            await(release);
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+        MockHttpServletResponse listResponse = new MockHttpServletResponse();
+        MockHttpServletResponse readResponse = new MockHttpServletResponse();
+
+        //when
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/employees"), listResponse, new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/employees/1"), readResponse, new MockFilterChain());
+        release.countDown();
+        slowList.get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(listResponse.getStatus()).isEqualTo(503);
+        assertThat(listResponse.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(readResponse.getStatus()).isEqualTo(200);
+        assertThat(filter.limit(EndpointClass.LIST).inFlight()).isZero();
+        assertThat(meterRegistry.get("employees.concurrency.rejected").tags("endpoint", "list").functionCounter()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("employees.concurrency.limit").tags("endpoint", "read").gauge().value())
+                .isEqualTo(5);
+    }
+
+    @DisplayName("Junit test for counting server errors other than a loading search index as overload")
+    @Test
+    public void givenServerErrors_whenClassified_thenOnlyLoadingSearchIndexIsNoOverload() {
+        //given
+        MockHttpServletRequest poolExhausted = new MockHttpServletRequest("GET", "/api/employees/1");
+        MockHttpServletRequest searchLoading = new MockHttpServletRequest("GET", "/api/employees/search");
+        searchLoading.setAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE,
+                new SearchIndexNotReadyException("Employee search index is still loading"));
+
+        //when, then
+        assertThat(AdaptiveConcurrencyLimitFilter.isOverload(poolExhausted, 503)).isTrue();
+        assertThat(AdaptiveConcurrencyLimitFilter.isOverload(poolExhausted, 500)).isTrue();
+        assertThat(AdaptiveConcurrencyLimitFilter.isOverload(searchLoading, 503)).isFalse();
+        assertThat(AdaptiveConcurrencyLimitFilter.isOverload(poolExhausted, 404)).isFalse();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
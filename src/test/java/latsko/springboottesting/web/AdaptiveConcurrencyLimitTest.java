@@ -0,0 +1,105 @@
+package latsko.springboottesting.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long WINDOW_MILLIS = 100;
+
+    private long now;
+
+    @DisplayName("Junit test for limit rejecting requests once it is reached")
+    @Test
+    public void givenLimitReached_whenTryAcquire_thenReject() {
+        //given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10);
+        limit.tryAcquire();
+        int second = limit.tryAcquire();
+
+        //when
+        int rejected = limit.tryAcquire();
+        limit.release(second, TimeUnit.MILLISECONDS.toNanos(1), false);
+        int admitted = limit.tryAcquire();
+
+        //then
+        assertThat(rejected).isZero();
+        assertThat(admitted).isEqualTo(2);
+    }
+
+    @DisplayName("Junit test for limit growing while latency stays flat under full use")
+    @Test
+    public void givenSteadyLatency_whenLimitFullyUsed_thenGrow() {
+        //given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 200);
+
+        //when
+        for (int i = 0; i < 20; i++) {
+            window(limit, 10, limit.limit());
+        }
+
+        //then
+        assertThat(limit.limit()).isGreaterThan(30);
+    }
+
+    @DisplayName("Junit test for limit not growing while most of it is unused")
+    @Test
+    public void givenLightLoad_whenSamples_thenKeepLimit() {
+        //given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 200);
+
+        //when
+        for (int i = 0; i < 20; i++) {
+            window(limit, 10, 2);
+        }
+
+        //then
+        assertThat(limit.limit()).isEqualTo(20);
+    }
+
+    @DisplayName("Junit test for limit shrinking when latency rises")
+    @Test
+    public void givenRisingLatency_whenSamples_thenShrink() {
+        //given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(40, 1, 200);
+        for (int i = 0; i < 10; i++) {
+            window(limit, 10, limit.limit());
+        }
+        int before = limit.limit();
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            window(limit, 100, limit.limit());
+        }
+
+        //then
+        assertThat(limit.limit()).isLessThan(before * 2 / 3);
+    }
+
+    @DisplayName("Junit test for limit backing off after a server error")
+    @Test
+    public void givenServerError_whenSamples_thenBackOff() {
+        //given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 200);
+
+        //when
+        limit.onSample(now, 20, TimeUnit.MILLISECONDS.toNanos(10), true);
+        window(limit, 10, 20);
+
+        //then
+        assertThat(limit.limit()).isEqualTo(18);
+    }
+
+    // enough samples of the given latency to close one window
+    private void window(AdaptiveConcurrencyLimit limit, long rttMillis, int inFlight) {
+        for (int i = 0; i <= 10; i++) {
+            limit.onSample(now + TimeUnit.MILLISECONDS.toNanos(i * WINDOW_MILLIS / 10), inFlight,
+                    TimeUnit.MILLISECONDS.toNanos(rttMillis), false);
+        }
+        now += TimeUnit.MILLISECONDS.toNanos(2 * WINDOW_MILLIS);
+    }
+}
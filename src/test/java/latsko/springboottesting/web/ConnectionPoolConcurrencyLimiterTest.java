@@ -0,0 +1,77 @@
+package latsko.springboottesting.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionPoolConcurrencyLimiterTest {
+
+    private ConnectionPoolConcurrencyLimiter limiter;
+
+    @BeforeEach
+    public void setUp() {
+        limiter = new ConnectionPoolConcurrencyLimiter(1, Duration.ofMillis(50));
+    }
+
+    @DisplayName("Junit test for limiter admitting a request while permits are available")
+    @Test
+    public void givenFreePermit_whenFilter_thenPassAndReleasePermit() throws Exception {
+        //given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //when
+        limiter.doFilter(new MockHttpServletRequest("GET", "/api/employees/1"), response, new MockFilterChain());
+
+        //then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(limiter.availablePermits()).isEqualTo(1);
+    }
+
+    @DisplayName("Junit test for limiter rejecting a request when the pool is exhausted")
+    @Test
+    public void givenNoFreePermit_whenFilter_thenReturnServiceUnavailable() throws Exception {
+        //given
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> slowRequest = CompletableFuture.runAsync(() -> {
+            try {
+                limiter.doFilter(new MockHttpServletRequest("GET", "/api/employees"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            inFlight.countDown();
+                            await(release);
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //when
+        limiter.doFilter(new MockHttpServletRequest("GET", "/api/employees/1"), response, new MockFilterChain());
+        release.countDown();
+        slowRequest.get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(limiter.availablePermits()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package latsko.springboottesting.web;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import latsko.springboottesting.metrics.StatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementCountMetricsFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private StatementCountMetricsFilter filter;
+    private StatementCounter statementCounter;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new StatementCountMetricsFilter(meterRegistry);
+        statementCounter = new StatementCounter();
+    }
+
+    @DisplayName("Junit test for recording the statements issued by an API request")
+    @Test
+    public void givenApiRequest_whenFilter_thenRecordStatementCountPerUri() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees/1");
+
+        //when
+        filter.doFilter(request, new MockHttpServletResponse(), (servletRequest, servletResponse) -> {
+            servletRequest.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/employees/{id}");
+            statementCounter.inspect("select 1");
+            statementCounter.inspect("select 2");
+        });
+
+        //then
+        DistributionSummary summary = meterRegistry.get("hibernate.statements.per.request")
+                .tags("method", "GET", "uri", "/api/employees/{id}", "status", "200")
+                .summary();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(2);
+    }
+
+    @DisplayName("Junit test for skipping requests outside of the API")
+    @Test
+    public void givenActuatorRequest_whenFilter_thenRecordNothing() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/actuator/prometheus");
+
+        //when
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        //then
+        assertThat(meterRegistry.find("hibernate.statements.per.request").summaries()).isEmpty();
+    }
+
+    @DisplayName("Junit test for passing requests through without a meter registry")
+    @Test
+    public void givenNoMeterRegistry_whenFilter_thenPassRequestThrough() throws Exception {
+        //given
+        StatementCountMetricsFilter unrecorded = new StatementCountMetricsFilter((MeterRegistry) null);
+        MockFilterChain chain = new MockFilterChain();
+
+        //when
+        unrecorded.doFilter(new MockHttpServletRequest("GET", "/api/employees/1"), new MockHttpServletResponse(), chain);
+
+        //then
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    @DisplayName("Junit test for statements outside of a request not being counted")
+    @Test
+    public void givenNoCountStarted_whenInspect_thenStopReturnsZero() {
+        //given
+
+        //when
+        statementCounter.inspect("select 1");
+
+        //then
+        assertThat(StatementCounter.stop()).isZero();
+    }
+}